@@ -0,0 +1,99 @@
+package library;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Adding and searching books in catalogs of increasing size. The journal runs in
+// INTERVAL mode so these measure the in-memory work; LoanBenchmark covers the
+// cost of durable writes.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlibrary.durability=INTERVAL")
+public class CatalogBenchmark {
+    private static final int SEARCH_PAGE = 100;
+
+    @Param({"10000", "100000", "1000000", "10000000"})
+    public int books;
+
+    private File dir;
+    private Library library;
+    private final AtomicLong nextIsbn = new AtomicLong();
+    private String[] queries;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Datasets.library(books, 0);
+        library = new Library(dir);
+        queries = new String[1024];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < queries.length; i++) {
+            int book = random.nextInt(books);
+            queries[i] = switch (i % 4) {
+                case 0 -> "title " + book;                   // title words, exact
+                case 1 -> "author " + (book % 50_000);       // author words
+                case 2 -> "generated " + (book / 10);        // number used as a prefix
+                default -> Datasets.isbn(book);              // exact ISBN shortcut
+            };
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        library.close();
+        Datasets.delete(dir);
+    }
+
+    // Books added by addBook are deleted again after each iteration, so every
+    // iteration measures a catalog of the @Param size rather than one that grew all trial.
+    @TearDown(Level.Iteration)
+    public void dropAddedBooks() {
+        long added = nextIsbn.getAndSet(0);
+        for (long n = 1; n <= added; n++) library.remove("BENCH-" + n);
+    }
+
+    @Benchmark
+    public OperationResult addBook() {
+        long n = nextIsbn.incrementAndGet();
+        return library.add(new Book("Benchmark Title " + n, "Benchmark Author", "BENCH-" + n));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public OperationResult addBookConcurrent() {
+        return addBook();
+    }
+
+    // The first page of a search, best match first, as GET /search serves it.
+    @Benchmark
+    public List<Book> searchBook() {
+        String query = queries[ThreadLocalRandom.current().nextInt(queries.length)];
+        return library.searchBooks(query, BookOrder.RELEVANCE, null, SEARCH_PAGE).stream().toList();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public List<Book> searchBookConcurrent() {
+        return searchBook();
+    }
+}
@@ -0,0 +1,77 @@
+package library;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Circulation analytics over ten years of loans, aggregated on a fork-join pool
+// of the given size. Comparing the cores values for one transactions value shows
+// how the scan scales; results above the machine's core count only add overhead.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CirculationBenchmark {
+    private static final int DAYS = 3650;
+
+    @Param({"1000000", "10000000"})
+    public int transactions;
+
+    @Param({"1", "2", "4", "8"})
+    public int cores;
+
+    private LoanColumns columns;
+    private ForkJoinPool pool;
+    private int today;
+
+    // Loans are built straight into columns: a Library with 10M loans would
+    // spend minutes loading before the first measurement.
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        today = EpochDays.today();
+        int[] isbns = new int[transactions];
+        int[] issued = new int[transactions];
+        int[] due = new int[transactions];
+        int[] returned = new int[transactions];
+        for (int i = 0; i < transactions; i++) {
+            isbns[i] = random.nextInt(Math.max(1_000, transactions / 10));
+            issued[i] = today - random.nextInt(DAYS);
+            due[i] = issued[i] + 14;
+            returned[i] = random.nextInt(50) == 0 ? Transaction.NOT_RETURNED : issued[i] + random.nextInt(30);
+        }
+        columns = new LoanColumns(isbns, issued, due, returned, transactions);
+        pool = new ForkJoinPool(cores);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public CirculationStats weeklyOverTenYears() {
+        return CirculationStats.compute(List.of(columns), today - DAYS + 1, today, CirculationStats.Period.WEEK, pool);
+    }
+
+    @Benchmark
+    public CirculationStats dailyOverLastMonth() {
+        return CirculationStats.compute(List.of(columns), today - 29, today, CirculationStats.Period.DAY, pool);
+    }
+}
@@ -0,0 +1,80 @@
+package library;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+// Synthetic data directories for the benchmarks. Each one is a fresh temp
+// directory in the layout Library and UserManager load from.
+final class Datasets {
+    private Datasets() {
+    }
+
+    // books.csv and transactions.csv. Loans run day by day; the last loan of each book is still open.
+    static File library(int books, int transactions) throws IOException {
+        File dir = Files.createTempDirectory("library-jmh").toFile();
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+        LocalDate firstDay = LocalDate.now().minusDays(transactions / Math.max(1, books) * 10L + 10);
+        boolean[] issued = new boolean[books];
+        try (BufferedWriter w = Files.newBufferedWriter(new File(dir, "transactions.csv").toPath())) {
+            for (int i = 0; i < transactions; i++) {
+                int book = i % books;
+                LocalDate issue = firstDay.plusDays(i / books * 10L);
+                boolean open = i + books >= transactions;
+                if (open) issued[book] = true;
+                long late = (i % 13 == 0) ? 3 : 0;
+                w.write(Csv.format("user" + (i % 100_000), isbn(book), issue.format(formatter),
+                        issue.plusDays(7).format(formatter), open ? "" : issue.plusDays(7 + late).format(formatter),
+                        Long.toString(late * 10)));
+                w.newLine();
+            }
+        }
+        try (BufferedWriter w = Files.newBufferedWriter(new File(dir, "books.csv").toPath())) {
+            for (int i = 0; i < books; i++) {
+                w.write(Csv.format("Generated Title " + i, "Author " + (i % 50_000), isbn(i), issued[i] ? "Issued" : "Available"));
+                w.newLine();
+            }
+        }
+        return dir;
+    }
+
+    static String isbn(int i) {
+        return String.format("978%010d", i);
+    }
+
+    // users.csv with patron0..patron<count-1>, whose password is "pw" + their number.
+    // Hashes are salted SHA-256, the format written before PBKDF2 existed.
+    static File users(int count) throws IOException {
+        File dir = Files.createTempDirectory("library-jmh").toFile();
+        Random random = new Random(42);
+        byte[] salt = new byte[16];
+        try (BufferedWriter w = Files.newBufferedWriter(new File(dir, "users.csv").toPath())) {
+            w.write(new User("admin", UserManager.hashPassword("admin123", "AAAAAAAAAAAAAAAAAAAAAA=="), "AAAAAAAAAAAAAAAAAAAAAA==", "Admin").toCSV());
+            w.newLine();
+            for (int i = 0; i < count; i++) {
+                random.nextBytes(salt);
+                String s = Base64.getEncoder().encodeToString(salt);
+                w.write(new User("patron" + i, UserManager.hashPassword("pw" + i, s), s, "User").toCSV());
+                w.newLine();
+            }
+        }
+        return dir;
+    }
+
+    static void delete(File dir) {
+        try (Stream<Path> paths = Files.walk(dir.toPath())) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
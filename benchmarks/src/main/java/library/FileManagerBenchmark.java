@@ -0,0 +1,65 @@
+package library;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Whole-file CSV writes (including the fsync) and reads of the books file.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FileManagerBenchmark {
+    @Param({"10000", "100000", "1000000", "10000000"})
+    public int records;
+
+    private File dir;
+    private String loadFile;
+    private String saveFile;
+    private List<Book> books;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("library-jmh").toFile();
+        loadFile = new File(dir, "load.csv").getPath();
+        saveFile = new File(dir, "save.csv").getPath();
+        books = new ArrayList<>(records);
+        for (int i = 0; i < records; i++) {
+            books.add(new Book("Generated Title " + i, "Author " + (i % 50_000), Datasets.isbn(i)));
+        }
+        FileManager.saveData(loadFile, books, Book::toCSV);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Datasets.delete(dir);
+    }
+
+    @Benchmark
+    public void saveData() {
+        FileManager.saveData(saveFile, books, Book::toCSV);
+    }
+
+    @Benchmark
+    public List<Book> loadData() {
+        return FileManager.loadData(loadFile, Book::fromFields);
+    }
+}
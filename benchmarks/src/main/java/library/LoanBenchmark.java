@@ -0,0 +1,93 @@
+package library;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Borrow/return cycles and reports over a library with a loan history of the
+// given size (one book per ten loans). Each benchmark thread borrows and returns
+// its own book, so threads contend on the journal rather than on one ISBN.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoanBenchmark {
+    @Param({"10000", "100000", "1000000", "10000000"})
+    public int transactions;
+
+    @Param({"GROUP_COMMIT", "INTERVAL"})
+    public String durability;
+
+    private File dir;
+    Library library;
+    final AtomicInteger borrowers = new AtomicInteger();
+
+    @State(Scope.Thread)
+    public static class Borrower {
+        String isbn;
+        String username;
+
+        @Setup(Level.Trial)
+        public void setUp(LoanBenchmark bench) {
+            int id = bench.borrowers.incrementAndGet();
+            isbn = "LOAN-" + id;
+            username = "borrower" + id;
+            bench.library.add(new Book("Loan Benchmark " + id, "Benchmark Author", isbn));
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        System.setProperty("library.durability", durability);
+        dir = Datasets.library(Math.max(1_000, transactions / 10), transactions);
+        library = new Library(dir);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        library.close();
+        Datasets.delete(dir);
+    }
+
+    // One borrowBook plus one returnBook.
+    @Benchmark
+    public OperationResult borrowAndReturn(Borrower b) {
+        library.checkOut(b.isbn, b.username);
+        return library.checkIn(b.isbn, b.username);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public OperationResult borrowAndReturnConcurrent(Borrower b) {
+        return borrowAndReturn(b);
+    }
+
+    @Benchmark
+    public List<String> generateReports() {
+        return library.reportLines();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public List<String> generateReportsConcurrent() {
+        return generateReports();
+    }
+}
@@ -0,0 +1,49 @@
+package library;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Cost of one password hash in each stored format.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PasswordHashBenchmark {
+    private static final String SALT = "c2FsdHNhbHRzYWx0c2FsdA==";
+
+    // Only the PBKDF2 benchmark takes the cost, so the SHA-256 ones aren't repeated per value.
+    @State(Scope.Benchmark)
+    public static class Pbkdf2Cost {
+        // The default cost of new passwords.
+        @Param({"600000"})
+        public int iterations;
+    }
+
+    @Benchmark
+    public String hashPassword() {
+        return UserManager.hashPassword("correct horse battery staple", SALT);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String hashPasswordConcurrent() {
+        return hashPassword();
+    }
+
+    @Benchmark
+    public String pbkdf2(Pbkdf2Cost cost) {
+        return UserManager.pbkdf2("correct horse battery staple", SALT, cost.iterations);
+    }
+}
@@ -0,0 +1,65 @@
+package library;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Cold start of a Library from the CSV files (data from older versions, or a
+// fresh import) against the binary snapshot it normally starts from, with ten
+// loans per book. Each load is followed by close(), which stops its background tasks.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StartupBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int books;
+
+    private File csvDir;
+    private File snapshotDir;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        csvDir = Datasets.library(books, books * 10);
+        // Same data, loaded once and compacted so that only the snapshot is read.
+        snapshotDir = Datasets.library(books, books * 10);
+        Library library = new Library(snapshotDir);
+        library.compact();
+        library.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Datasets.delete(csvDir);
+        Datasets.delete(snapshotDir);
+    }
+
+    @Benchmark
+    public Library loadCsv() {
+        Library library = new Library(csvDir);
+        library.close();
+        return library;
+    }
+
+    @Benchmark
+    public Library loadSnapshot() {
+        Library library = new Library(snapshotDir);
+        library.close();
+        return library;
+    }
+}
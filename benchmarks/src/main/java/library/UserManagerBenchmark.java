@@ -0,0 +1,67 @@
+package library;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Logins against user bases of increasing size. Records stay on salted SHA-256
+// and the verified-login cache is off, so every call does the lookup and a full
+// hash check; PasswordHashBenchmark measures PBKDF2 on its own. The user base
+// stops at 1M: each record carries its own salt and hash.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Dlibrary.pbkdf2Iterations=0", "-Dlibrary.credentialCacheSeconds=0"})
+public class UserManagerBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int users;
+
+    private File dir;
+    private UserManager userManager;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Datasets.users(users);
+        userManager = new UserManager(dir);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        userManager.close();
+        Datasets.delete(dir);
+    }
+
+    @Benchmark
+    public User login() {
+        int i = ThreadLocalRandom.current().nextInt(users);
+        return userManager.login("patron" + i, "pw" + i);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public User loginConcurrent() {
+        return login();
+    }
+
+    @Benchmark
+    public User loginWrongPassword() {
+        return userManager.login("patron" + ThreadLocalRandom.current().nextInt(users), "wrong");
+    }
+}
@@ -0,0 +1,100 @@
+package library;
+
+import java.util.*;
+
+// One catalog entry per title (ISBN), however many physical copies it has.
+// Copies are numbered from 1; a set bit in `onLoan` means that copy is out.
+// Changes go through Catalog under the ISBN's stripe lock, so the counts and
+// the bits always agree; the counts are volatile so readers need no lock.
+class Book {
+    private final String title;
+    private final String author;
+    private final String isbn;
+    private volatile int copies;
+    private volatile int available;
+    private final BitSet onLoan = new BitSet(1);
+
+    public Book(String title, String author, String isbn) {
+        this(title, author, isbn, 1);
+    }
+
+    public Book(String title, String author, String isbn, int copies) {
+        this.title = title;
+        this.author = author;
+        this.isbn = isbn;
+        this.copies = copies;
+        this.available = copies;
+    }
+
+    public String getTitle() { return title; }
+    public String getAuthor() { return author; }
+    public String getIsbn() { return isbn; }
+    public int getCopies() { return copies; }
+    public int getAvailable() { return available; }
+    public String getStatus() { return getBookStatus().getLabel(); }
+    // Available while any copy is on the shelf.
+    public BookStatus getBookStatus() { return available > 0 ? BookStatus.AVAILABLE : BookStatus.ISSUED; }
+
+    // Lowest-numbered copy on the shelf, or -1 if every copy is out.
+    int freeCopy() {
+        int bit = onLoan.nextClearBit(0);
+        return bit < copies ? bit + 1 : -1;
+    }
+
+    // False if the copy does not exist or is already out.
+    boolean lend(int copy) {
+        if (copy < 1 || copy > copies || onLoan.get(copy - 1)) return false;
+        onLoan.set(copy - 1);
+        available--;
+        return true;
+    }
+
+    boolean giveBack(int copy) {
+        if (copy < 1 || copy > copies || !onLoan.get(copy - 1)) return false;
+        onLoan.clear(copy - 1);
+        available++;
+        return true;
+    }
+
+    void addCopies(int count) {
+        copies += count;
+        available += count;
+    }
+
+    @Override
+    public String toString() {
+        String shelf = copies == 1 ? getStatus() : available + " of " + copies + " copies available";
+        return title + " | " + author + " | ISBN: " + isbn + " | " + shelf;
+    }
+
+    // The status column is written for older readers; on load, which copies are
+    // out is worked out from the open loans instead.
+    public String toCSV() {
+        return Csv.format(title, author, isbn, getStatus(), Integer.toString(copies));
+    }
+
+    public static Book fromCSV(String line) {
+        return fromFields(Csv.parseLine(line));
+    }
+
+    public static Book fromFields(String[] parts) {
+        if (parts.length < 4) {
+            Metrics.PARSE_ERRORS.increment();
+            return null;
+        }
+        // Files written before copies existed hold one copy per row.
+        int copies = 1;
+        if (parts.length > 4) {
+            try {
+                copies = Integer.parseInt(parts[4].trim());
+            } catch (NumberFormatException e) {
+                copies = 0;
+            }
+            if (copies < 1) {
+                Metrics.PARSE_ERRORS.increment();
+                return null;
+            }
+        }
+        return new Book(parts[0], parts[1], parts[2], copies);
+    }
+}
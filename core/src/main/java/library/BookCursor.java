@@ -0,0 +1,40 @@
+package library;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// The edge of a page: the sort key of its last book (to go forward) or first book
+// (to go back). Clients get it as opaque URL-safe Base64 and hand it back as is.
+// Because it holds a key rather than an offset, pages stay put while books are
+// added or deleted elsewhere, and the next page starts with a seek, not a rescan.
+final class BookCursor {
+    private static final String VERSION = "1";
+
+    final BookOrder order;
+    final boolean forward;
+    final Book anchor;
+
+    BookCursor(BookOrder order, boolean forward, Book anchor) {
+        this.order = order;
+        this.forward = forward;
+        this.anchor = anchor;
+    }
+
+    String encode() {
+        String raw = String.join("\0", VERSION, order.name(), forward ? "next" : "prev",
+                anchor.getTitle(), anchor.getAuthor(), anchor.getIsbn());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static BookCursor decode(String token, BookOrder expected) {
+        try {
+            String[] f = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8).split("\0", -1);
+            if (f.length == 6 && f[0].equals(VERSION) && f[1].equals(expected.name())) {
+                return new BookCursor(expected, f[2].equals("next"), new Book(f[3], f[4], f[5]));
+            }
+        } catch (IllegalArgumentException e) {
+            // not Base64: reported below like any other foreign token
+        }
+        throw new IllegalArgumentException("Invalid page cursor for " + expected.name().toLowerCase(Locale.ROOT) + " order.");
+    }
+}
@@ -0,0 +1,35 @@
+package library;
+
+import java.util.*;
+
+// Orders for listing the catalog. Each ends with the ISBN, so every book has its
+// own position and a cursor can name exactly where a page stopped.
+// RELEVANCE ranks search results the way SearchIndex.search does; it depends on
+// the query, so it has no sorted index and the full catalog can't be listed by it.
+enum BookOrder {
+    RELEVANCE, TITLE, AUTHOR, ISBN;
+
+    private static final Comparator<Book> BY_TITLE =
+            Comparator.comparing(Book::getTitle, String.CASE_INSENSITIVE_ORDER).thenComparing(Book::getIsbn);
+    private static final Comparator<Book> BY_AUTHOR =
+            Comparator.comparing(Book::getAuthor, String.CASE_INSENSITIVE_ORDER).thenComparing(BY_TITLE);
+    private static final Comparator<Book> BY_ISBN = Comparator.comparing(Book::getIsbn);
+
+    Comparator<Book> comparator() {
+        return switch (this) {
+            case RELEVANCE -> throw new IllegalStateException("Relevance depends on the query.");
+            case TITLE -> BY_TITLE;
+            case AUTHOR -> BY_AUTHOR;
+            case ISBN -> BY_ISBN;
+        };
+    }
+
+    Comparator<Book> comparator(String query) {
+        return this == RELEVANCE ? SearchIndex.relevance(query) : comparator();
+    }
+
+    static BookOrder of(String name) {
+        for (BookOrder o : values()) if (o.name().equalsIgnoreCase(name.trim())) return o;
+        throw new IllegalArgumentException("Order must be relevance, title, author or isbn.");
+    }
+}
@@ -0,0 +1,27 @@
+package library;
+
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+// One page, given by its first and last book. The books themselves are not copied
+// out: stream() reads them lazily from whatever holds them in order.
+class BookPage {
+    private final Supplier<Stream<Book>> books;
+    private final boolean empty;
+    private final String next;
+    private final String previous;
+
+    BookPage(Book first, Book last, Supplier<Stream<Book>> books, BookOrder order, boolean hasNext, boolean hasPrevious) {
+        this.books = books;
+        this.empty = first == null;
+        this.next = hasNext && !empty ? new BookCursor(order, true, last).encode() : null;
+        this.previous = hasPrevious && !empty ? new BookCursor(order, false, first).encode() : null;
+    }
+
+    public Stream<Book> stream() { return books.get(); }
+    public boolean isEmpty() { return empty; }
+    public String getNext() { return next; }
+    public String getPrevious() { return previous; }
+    public boolean hasNext() { return next != null; }
+    public boolean hasPrevious() { return previous != null; }
+}
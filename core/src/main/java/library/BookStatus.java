@@ -0,0 +1,28 @@
+package library;
+
+// Status is an enum, so every Book shares the two constants instead of holding
+// its own string.
+enum BookStatus {
+    AVAILABLE("Available"),
+    ISSUED("Issued");
+
+    private final String label;
+
+    BookStatus(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() { return label; }
+
+    // Anything other than "Issued" counts as on the shelf.
+    public static BookStatus fromLabel(String label) {
+        return ISSUED.label.equalsIgnoreCase(label.trim()) ? ISSUED : AVAILABLE;
+    }
+
+    public static boolean isLabel(String text) {
+        for (BookStatus s : values()) {
+            if (s.label.equalsIgnoreCase(text.trim())) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,128 @@
+package library;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Books keyed by ISBN, with copy counts, the full-text index and one sorted set
+// per BookOrder kept in step so lookups, deletes, search, paging and the report
+// counters don't walk the whole collection. All structures are concurrent, so reads never lock;
+// callers serialize writes to the same ISBN.
+class Catalog {
+    private final ConcurrentHashMap<String, Book> byIsbn = new ConcurrentHashMap<>();
+    private final AtomicLong copies = new AtomicLong();
+    private final AtomicLong available = new AtomicLong();
+    private final SearchIndex text = new SearchIndex();
+    private final EnumMap<BookOrder, ConcurrentSkipListSet<Book>> sorted = new EnumMap<>(BookOrder.class);
+    // Sorted search results, so later pages of a search are a binary search rather
+    // than another pass over the text index. Any add or delete makes them stale.
+    private static final int CACHED_SEARCHES = 16;
+    private final AtomicLong changes = new AtomicLong();
+    private final Map<String, SortedMatches> searches = new LinkedHashMap<>(CACHED_SEARCHES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, SortedMatches> eldest) {
+            return size() > CACHED_SEARCHES;
+        }
+    };
+
+    private record SortedMatches(long version, Book[] books) {}
+
+    public Catalog() {
+        for (BookOrder order : BookOrder.values()) {
+            if (order != BookOrder.RELEVANCE) sorted.put(order, new ConcurrentSkipListSet<>(order.comparator()));
+        }
+    }
+
+    public boolean add(Book book) {
+        if (byIsbn.putIfAbsent(book.getIsbn(), book) != null) return false;
+        copies.addAndGet(book.getCopies());
+        available.addAndGet(book.getAvailable());
+        text.add(book);
+        for (ConcurrentSkipListSet<Book> set : sorted.values()) set.add(book);
+        changes.incrementAndGet();
+        return true;
+    }
+
+    public Book remove(String isbn) {
+        Book book = byIsbn.remove(isbn);
+        if (book == null) return null;
+        copies.addAndGet(-book.getCopies());
+        available.addAndGet(-book.getAvailable());
+        text.remove(book);
+        for (ConcurrentSkipListSet<Book> set : sorted.values()) set.remove(book);
+        changes.incrementAndGet();
+        return book;
+    }
+
+    public Book get(String isbn) {
+        return byIsbn.get(isbn);
+    }
+
+    // Copies are lent, returned and added through here so the totals stay right.
+    // Callers hold the book's ISBN stripe lock (or are loading, single-threaded).
+    public boolean lend(Book book, int copy) {
+        if (!book.lend(copy)) return false;
+        available.decrementAndGet();
+        return true;
+    }
+
+    public boolean giveBack(Book book, int copy) {
+        if (!book.giveBack(copy)) return false;
+        available.incrementAndGet();
+        return true;
+    }
+
+    public void addCopies(Book book, int count) {
+        book.addCopies(count);
+        copies.addAndGet(count);
+        available.addAndGet(count);
+    }
+
+    public long copies() {
+        return copies.get();
+    }
+
+    public long availableCopies() {
+        return available.get();
+    }
+
+    // Books matching the query, in the given order. The array is shared with
+    // other callers and must not be modified.
+    public Book[] matches(String query, BookOrder order) {
+        String key = order + "\0" + String.join(" ", SearchIndex.tokenize(query));
+        long version = changes.get();
+        synchronized (searches) {
+            SortedMatches cached = searches.get(key);
+            if (cached != null && cached.version() == version) return cached.books();
+        }
+        Book[] found;
+        if (order == BookOrder.RELEVANCE) {
+            found = text.search(query).stream().map(byIsbn::get).filter(Objects::nonNull).toArray(Book[]::new);
+        } else {
+            found = text.matches(query).stream().map(byIsbn::get).filter(Objects::nonNull).toArray(Book[]::new);
+            Arrays.sort(found, order.comparator());
+        }
+        synchronized (searches) {
+            searches.put(key, new SortedMatches(version, found));
+        }
+        return found;
+    }
+
+    // Every book in the given order. A live, read-only view.
+    public NavigableSet<Book> sorted(BookOrder order) {
+        return Collections.unmodifiableNavigableSet(sorted.get(order));
+    }
+
+    public Collection<Book> all() {
+        return byIsbn.values();
+    }
+
+    public int size() {
+        return byIsbn.size();
+    }
+
+    public boolean isEmpty() {
+        return byIsbn.isEmpty();
+    }
+}
@@ -0,0 +1,198 @@
+package library;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+// Borrows and returns per day, week or month over an inclusive window of epoch
+// days. The scan is a fork-join over row ranges of LoanColumns; each leaf fills
+// its own per-period counters and halves are summed on the way back up, so threads
+// share nothing until the merge. Per-book borrows would need an array as large as
+// the ISBN table in every leaf, so all leaves count them into one shared atomic
+// array instead. Return-side figures (loan length, late returns) are filed under
+// the period of the return.
+class CirculationStats {
+    enum Period {
+        DAY, WEEK, MONTH;
+
+        // First epoch day of the period holding the day. Weeks start on Monday
+        // (epoch day 0 was a Thursday).
+        int start(int day) {
+            return switch (this) {
+                case DAY -> day;
+                case WEEK -> day - Math.floorMod(day + 3, 7);
+                case MONTH -> (int) LocalDate.ofEpochDay(day).withDayOfMonth(1).toEpochDay();
+            };
+        }
+
+        static Period of(String name) {
+            for (Period p : values()) if (p.name().equalsIgnoreCase(name.trim())) return p;
+            throw new IllegalArgumentException("Period must be day, week or month.");
+        }
+    }
+
+    private static final int MIN_CHUNK = 1 << 14;
+    private static final int MAX_WINDOW_DAYS = 100 * 366;
+
+    final int fromDay;
+    final int toDay;
+    final Period period;
+    final int[] periodStarts;
+    final long[] borrows;
+    final long[] returns;
+    final long[] loanDays;
+    final long[] lateReturns;
+    final int[] borrowsByIsbn;
+
+    private CirculationStats(int fromDay, int toDay, Period period, int[] periodStarts, Counts total, int[] borrowsByIsbn) {
+        this.fromDay = fromDay;
+        this.toDay = toDay;
+        this.period = period;
+        this.periodStarts = periodStarts;
+        this.borrows = total.borrows;
+        this.returns = total.returns;
+        this.loanDays = total.loanDays;
+        this.lateReturns = total.lateReturns;
+        this.borrowsByIsbn = borrowsByIsbn;
+    }
+
+    static CirculationStats compute(List<LoanColumns> parts, int fromDay, int toDay, Period period, ForkJoinPool pool) {
+        if (toDay < fromDay) throw new IllegalArgumentException("Window ends before it starts.");
+        if (toDay - fromDay >= MAX_WINDOW_DAYS) throw new IllegalArgumentException("Window is longer than 100 years.");
+        // Day offset -> period index, so the scan never does date arithmetic.
+        int[] periodOf = new int[toDay - fromDay + 1];
+        int[] starts = new int[periodOf.length];
+        int periods = 0;
+        for (int d = fromDay; d <= toDay; d++) {
+            int start = Math.max(fromDay, period.start(d));
+            if (periods == 0 || starts[periods - 1] != start) starts[periods++] = start;
+            periodOf[d - fromDay] = periods - 1;
+        }
+        int isbnBound = 0;
+        for (LoanColumns c : parts) isbnBound = Math.max(isbnBound, c.isbnBound);
+        Counts total = new Counts(periods);
+        AtomicIntegerArray byIsbn = new AtomicIntegerArray(isbnBound);
+        for (LoanColumns c : parts) {
+            if (c.size == 0) continue;
+            int chunk = Math.max(MIN_CHUNK, c.size / (pool.getParallelism() * 4) + 1);
+            total.add(pool.invoke(new Scan(c, 0, c.size, chunk, fromDay, toDay, periodOf, periods, byIsbn)));
+        }
+        int[] borrowsByIsbn = new int[isbnBound];
+        for (int id = 0; id < isbnBound; id++) borrowsByIsbn[id] = byIsbn.get(id);
+        return new CirculationStats(fromDay, toDay, period, Arrays.copyOf(starts, periods), total, borrowsByIsbn);
+    }
+
+    long totalBorrows() { return sum(borrows); }
+    long totalReturns() { return sum(returns); }
+    long totalLateReturns() { return sum(lateReturns); }
+
+    double averageLoanDays() {
+        long n = totalReturns();
+        return n == 0 ? 0 : (double) sum(loanDays) / n;
+    }
+
+    double lateReturnRate() {
+        long n = totalReturns();
+        return n == 0 ? 0 : (double) totalLateReturns() / n;
+    }
+
+    // Isbn ids of the most borrowed books in the window, most borrowed first.
+    int[] topIsbns(int k) {
+        PriorityQueue<Integer> heap = new PriorityQueue<>(
+                Comparator.comparingInt((Integer id) -> borrowsByIsbn[id]).thenComparing(Comparator.reverseOrder()));
+        for (int id = 0; id < borrowsByIsbn.length; id++) {
+            if (borrowsByIsbn[id] == 0) continue;
+            heap.add(id);
+            if (heap.size() > k) heap.poll();
+        }
+        int[] result = new int[heap.size()];
+        for (int i = result.length - 1; i >= 0; i--) result[i] = heap.poll();
+        return result;
+    }
+
+    private static long sum(long[] values) {
+        long total = 0;
+        for (long v : values) total += v;
+        return total;
+    }
+
+    private static final class Counts {
+        final long[] borrows;
+        final long[] returns;
+        final long[] loanDays;
+        final long[] lateReturns;
+
+        Counts(int periods) {
+            borrows = new long[periods];
+            returns = new long[periods];
+            loanDays = new long[periods];
+            lateReturns = new long[periods];
+        }
+
+        void add(Counts other) {
+            for (int p = 0; p < borrows.length; p++) {
+                borrows[p] += other.borrows[p];
+                returns[p] += other.returns[p];
+                loanDays[p] += other.loanDays[p];
+                lateReturns[p] += other.lateReturns[p];
+            }
+        }
+    }
+
+    @SuppressWarnings("serial") // never serialized
+    private static final class Scan extends RecursiveTask<Counts> {
+        private final LoanColumns c;
+        private final int lo;
+        private final int hi;
+        private final int chunk;
+        private final int fromDay;
+        private final int toDay;
+        private final int[] periodOf;
+        private final int periods;
+        private final AtomicIntegerArray borrowsByIsbn;
+
+        Scan(LoanColumns c, int lo, int hi, int chunk, int fromDay, int toDay, int[] periodOf, int periods,
+                AtomicIntegerArray borrowsByIsbn) {
+            this.c = c;
+            this.lo = lo;
+            this.hi = hi;
+            this.chunk = chunk;
+            this.fromDay = fromDay;
+            this.toDay = toDay;
+            this.periodOf = periodOf;
+            this.periods = periods;
+            this.borrowsByIsbn = borrowsByIsbn;
+        }
+
+        @Override
+        protected Counts compute() {
+            if (hi - lo > chunk) {
+                int mid = (lo + hi) >>> 1;
+                Scan right = new Scan(c, mid, hi, chunk, fromDay, toDay, periodOf, periods, borrowsByIsbn);
+                right.fork();
+                Counts left = new Scan(c, lo, mid, chunk, fromDay, toDay, periodOf, periods, borrowsByIsbn).compute();
+                left.add(right.join());
+                return left;
+            }
+            Counts counts = new Counts(periods);
+            int[] isbns = c.isbnIds, issued = c.issueDays, due = c.dueDays, returned = c.returnDays;
+            for (int i = lo; i < hi; i++) {
+                int issue = issued[i];
+                if (issue >= fromDay && issue <= toDay) {
+                    counts.borrows[periodOf[issue - fromDay]]++;
+                    borrowsByIsbn.getAndIncrement(isbns[i]);
+                }
+                int ret = returned[i]; // NOT_RETURNED is below any window
+                if (ret >= fromDay && ret <= toDay) {
+                    int p = periodOf[ret - fromDay];
+                    counts.returns[p]++;
+                    counts.loanDays[p] += ret - issue;
+                    if (ret > due[i]) counts.lateReturns[p]++;
+                }
+            }
+            return counts;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package library;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Consumer;
+
+// RFC 4180 CSV: fields holding a comma, quote or line break are wrapped in quotes,
+// with embedded quotes doubled. The parser works on raw UTF-8 bytes, which is safe
+// because the delimiters are ASCII and never occur inside a multi-byte character.
+class Csv {
+    public static String format(String... fields) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) sb.append(',');
+            String f = fields[i];
+            if (f.indexOf(',') < 0 && f.indexOf('"') < 0 && f.indexOf('\n') < 0 && f.indexOf('\r') < 0) {
+                sb.append(f);
+            } else {
+                sb.append('"').append(f.replace("\"", "\"\"")).append('"');
+            }
+        }
+        return sb.toString();
+    }
+
+    public static String[] parseLine(String line) {
+        List<String[]> records = new ArrayList<>(1);
+        parse(ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8)), records::add);
+        return records.isEmpty() ? new String[0] : records.get(0);
+    }
+
+    // Parses every record in the buffer's remaining bytes. Blank lines are skipped.
+    public static void parse(ByteBuffer buf, Consumer<String[]> consumer) {
+        List<String> fields = new ArrayList<>();
+        byte[] field = new byte[256];
+        int len = 0;
+        boolean quoted = false;
+        boolean sawQuote = false;
+        while (buf.hasRemaining()) {
+            byte b = buf.get();
+            if (quoted) {
+                if (b != '"') {
+                    if (len == field.length) field = Arrays.copyOf(field, len * 2);
+                    field[len++] = b;
+                } else if (buf.hasRemaining() && buf.get(buf.position()) == '"') {
+                    buf.get();
+                    if (len == field.length) field = Arrays.copyOf(field, len * 2);
+                    field[len++] = '"';
+                } else {
+                    quoted = false;
+                }
+            } else if (b == '"') {
+                quoted = true;
+                sawQuote = true;
+            } else if (b == ',') {
+                fields.add(new String(field, 0, len, StandardCharsets.UTF_8));
+                len = 0;
+            } else if (b == '\n' || b == '\r') {
+                if (b == '\r' && buf.hasRemaining() && buf.get(buf.position()) == '\n') buf.get();
+                if (!fields.isEmpty() || len > 0 || sawQuote) {
+                    fields.add(new String(field, 0, len, StandardCharsets.UTF_8));
+                    consumer.accept(fields.toArray(new String[0]));
+                    fields.clear();
+                }
+                len = 0;
+                sawQuote = false;
+            } else {
+                if (len == field.length) field = Arrays.copyOf(field, len * 2);
+                field[len++] = b;
+            }
+        }
+        if (!fields.isEmpty() || len > 0 || sawQuote) {
+            fields.add(new String(field, 0, len, StandardCharsets.UTF_8));
+            consumer.accept(fields.toArray(new String[0]));
+        }
+    }
+}
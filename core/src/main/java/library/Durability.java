@@ -0,0 +1,27 @@
+package library;
+
+import java.util.*;
+
+// How journal appends reach the disk, chosen with -Dlibrary.durability:
+//   EVERY_OP      each record is written and fsynced on its own before the caller goes on.
+//   GROUP_COMMIT  (default) callers still wait for the fsync, but every record queued
+//                 while the previous fsync ran is written and synced together, so
+//                 concurrent callers share one fsync.
+//   INTERVAL      callers do not wait; records are written as they arrive and fsynced
+//                 every library.flushIntervalMs (default 1000). A crash can lose the
+//                 changes of the last interval.
+enum Durability {
+    EVERY_OP,
+    GROUP_COMMIT,
+    INTERVAL;
+
+    public static Durability configured() {
+        String mode = System.getProperty("library.durability", GROUP_COMMIT.name());
+        try {
+            return valueOf(mode.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            System.err.println("⚠️ Unknown library.durability " + mode + ", using " + GROUP_COMMIT);
+            return GROUP_COMMIT;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package library;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Loan dates are held as epoch days; the dd-MM-yyyy text only exists for display
+// and files. Few distinct days occur, so both directions are cached.
+class EpochDays {
+    public static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+    private static final ConcurrentHashMap<Integer, String> TEXT = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Integer> DAYS = new ConcurrentHashMap<>();
+
+    public static int parse(String text) {
+        Integer day = DAYS.get(text);
+        if (day == null) {
+            day = (int) LocalDate.parse(text, FORMAT).toEpochDay();
+            DAYS.put(text, day);
+        }
+        return day;
+    }
+
+    public static String format(int day) {
+        return TEXT.computeIfAbsent(day, d -> LocalDate.ofEpochDay(d).format(FORMAT));
+    }
+
+    public static int today() {
+        return (int) LocalDate.now().toEpochDay();
+    }
+}
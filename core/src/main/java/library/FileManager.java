@@ -0,0 +1,150 @@
+package library;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Consumer;
+
+class FileManager {
+    // Writers of the same file take turns; different files are written in parallel.
+    private static final ConcurrentHashMap<String, Object> FILE_LOCKS = new ConcurrentHashMap<>();
+
+    public static <T> void saveData(String filename, Collection<T> data, Function<T, String> toCsvFunction) {
+        long start = System.nanoTime();
+        boolean saved = false;
+        synchronized (FILE_LOCKS.computeIfAbsent(new File(filename).getAbsolutePath(), k -> new Object())) {
+            try (FileOutputStream fos = new FileOutputStream(filename);
+                 BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(fos, StandardCharsets.UTF_8))) {
+                for (T item : data) {
+                    bw.write(toCsvFunction.apply(item));
+                    bw.newLine();
+                }
+                bw.flush();
+                fos.getFD().sync();
+                Metrics.SAVE_BYTES.add(fos.getChannel().size());
+                saved = true;
+            } catch (IOException e) {
+                System.err.println("⚠️ Error saving to file: " + filename);
+            }
+        }
+        Metrics.SAVE.record(start, saved);
+    }
+
+    public static <T> ArrayList<T> loadData(String filename, Function<String[], T> fromFieldsFunction) {
+        ArrayList<T> data = new ArrayList<>();
+        forEachRecord(filename, fields -> {
+            T item = fromFieldsFunction.apply(fields);
+            if (item != null) {
+                data.add(item);
+            }
+        });
+        return data;
+    }
+
+    // Streams every CSV record of the file, in order, to the consumer. The file is
+    // memory-mapped a window at a time instead of being read through a Reader.
+    public static void forEachRecord(String filename, Consumer<String[]> consumer) {
+        File file = new File(filename);
+        if (!file.exists()) return;
+        long start = System.nanoTime();
+        boolean loaded = false;
+        try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            for (long[] chunk : recordChunks(ch)) {
+                Csv.parse(ch.map(FileChannel.MapMode.READ_ONLY, chunk[0], chunk[1] - chunk[0]), consumer);
+            }
+            loaded = true;
+        } catch (IOException e) {
+            System.err.println("⚠️ Error loading from file: " + filename);
+        }
+        Metrics.LOAD.record(start, loaded);
+    }
+
+    // Same as forEachRecord, but chunks of the file are parsed in parallel on the
+    // fork-join pool, so the consumer must be thread-safe and records arrive in no
+    // particular order.
+    public static void forEachRecordParallel(String filename, Consumer<String[]> consumer) {
+        File file = new File(filename);
+        if (!file.exists()) return;
+        long start = System.nanoTime();
+        boolean loaded = false;
+        try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            recordChunks(ch).parallelStream().forEach(chunk -> {
+                try {
+                    Csv.parse(ch.map(FileChannel.MapMode.READ_ONLY, chunk[0], chunk[1] - chunk[0]), consumer);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            loaded = true;
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("⚠️ Error loading from file: " + filename);
+        }
+        Metrics.LOAD.record(start, loaded);
+    }
+
+    // Splits the file into [start, end) ranges of roughly CHUNK_SIZE bytes that each
+    // end on a record boundary: a line break outside quotes. Finding those needs one
+    // sequential pass that only tracks quote parity, which is much cheaper than parsing.
+    static final int CHUNK_SIZE = 8 << 20;
+
+    private static List<long[]> recordChunks(FileChannel ch) throws IOException {
+        List<long[]> chunks = new ArrayList<>();
+        long size = ch.size();
+        long chunkStart = 0;
+        boolean quoted = false;
+        for (long windowStart = 0; windowStart < size; windowStart += CHUNK_SIZE) {
+            MappedByteBuffer window = ch.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(CHUNK_SIZE, size - windowStart));
+            for (int i = 0; i < window.limit(); i++) {
+                byte b = window.get(i);
+                if (b == '"') quoted = !quoted;
+                else if (b == '\n' && !quoted && windowStart + i + 1 - chunkStart >= CHUNK_SIZE) {
+                    chunks.add(new long[]{chunkStart, windowStart + i + 1});
+                    chunkStart = windowStart + i + 1;
+                }
+            }
+        }
+        if (chunkStart < size) chunks.add(new long[]{chunkStart, size});
+        return chunks;
+    }
+
+    // Older versions snapshotted to CSV files plus a meta file holding the journal
+    // sequence they include, committed through a "<meta>.pending" marker. This finishes
+    // any such commit that was interrupted and returns the sequence.
+    public static long recoverSnapshot(String metaFile, String... dataFiles) {
+        File meta = new File(metaFile);
+        File pending = new File(metaFile + ".pending");
+        try {
+            if (pending.exists()) {
+                for (String name : dataFiles) {
+                    File tmp = new File(name + ".tmp");
+                    if (tmp.exists()) replaceFile(tmp, new File(name));
+                }
+                replaceFile(pending, meta);
+            } else {
+                // Snapshot was never committed: drop whatever half-written files it left.
+                for (String name : dataFiles) new File(name + ".tmp").delete();
+            }
+        } catch (IOException e) {
+            System.err.println("⚠️ Error recovering snapshot: " + metaFile);
+        }
+        if (!meta.exists()) return 0;
+        try (BufferedReader br = new BufferedReader(new FileReader(meta))) {
+            String line = br.readLine();
+            return line == null ? 0 : Long.parseLong(line.trim());
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("⚠️ Error reading snapshot: " + metaFile);
+            return 0;
+        }
+    }
+
+    private static void replaceFile(File from, File to) throws IOException {
+        Files.move(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,374 @@
+package library;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+class Journal {
+    // One daemon thread is shared by every store for background compaction.
+    private static final ScheduledExecutorService MAINTENANCE = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "journal-maintenance");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static final long FLUSH_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(Long.getLong("library.flushIntervalMs", 1000));
+
+    // A record waiting for the writer thread; `done` completes with its sequence
+    // number once it is durable, or with -1 if it could not be written.
+    private static final class Pending {
+        final long seq;
+        final byte[] bytes;
+        final CompletableFuture<Long> done = new CompletableFuture<>();
+
+        Pending(long seq, byte[] bytes) {
+            this.seq = seq;
+            this.bytes = bytes;
+        }
+    }
+
+    private static final Pending CLOSE = new Pending(-1, new byte[0]);
+
+    private final File file;
+    private final Durability durability;
+    // Appenders only take the journal's monitor to number and queue a record; the
+    // writer thread does all file I/O under fileLock, so appends keep queueing while
+    // an fsync is in progress.
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Object fileLock = new Object();
+    private final Thread writer;
+    private FileOutputStream out; // guarded by fileLock
+    // Replication: every batch is handed to these under fileLock once it is durable,
+    // never before. A primary that crashes loses unsynced records and numbers its next
+    // changes with their seqs, so a replica holding them would silently diverge.
+    private final List<Consumer<byte[]>> followers = new CopyOnWriteArrayList<>();
+    private final ByteArrayOutputStream unshipped = new ByteArrayOutputStream(); // written, not yet synced; guarded by fileLock
+    private long writtenSeq; // guarded by fileLock
+    private volatile long durableSeq;
+    private long nextSeq = 1;
+    private long snapshotSeq;
+    private boolean closed;
+
+    public Journal(String filename) {
+        this(filename, Durability.configured());
+    }
+
+    public Journal(String filename, Durability durability) {
+        this.file = new File(filename);
+        this.durability = durability;
+        this.writer = new Thread(this::writeLoop, "journal-writer-" + file.getName());
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public static ScheduledFuture<?> schedule(Runnable task, long periodSeconds) {
+        return MAINTENANCE.scheduleWithFixedDelay(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                System.err.println("⚠️ Background maintenance failed: " + e.getMessage());
+            }
+        }, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    // Feeds every intact record after snapshotSeq to the consumer. A torn or corrupt
+    // record (e.g. the process died mid-write) ends the log: it and anything after it
+    // are cut off so new appends start from a clean boundary.
+    public synchronized void replay(long snapshotSeq, Consumer<JournalRecord> consumer) {
+        this.snapshotSeq = snapshotSeq;
+        long maxSeq = snapshotSeq;
+        long goodLength = 0;
+        if (file.exists()) {
+            try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+                ByteArrayOutputStream line = new ByteArrayOutputStream();
+                long offset = 0;
+                int c;
+                while ((c = in.read()) != -1) {
+                    offset++;
+                    if (c != '\n') {
+                        line.write(c);
+                        continue;
+                    }
+                    JournalRecord record = JournalRecord.decode(line.toString(StandardCharsets.UTF_8));
+                    line.reset();
+                    if (record == null) break;
+                    goodLength = offset;
+                    maxSeq = Math.max(maxSeq, record.getSeq());
+                    if (record.getSeq() > snapshotSeq) consumer.accept(record);
+                }
+            } catch (IOException e) {
+                System.err.println("⚠️ Error reading journal: " + file);
+            }
+            if (goodLength < file.length()) {
+                System.err.println("⚠️ Discarding damaged journal tail in " + file + " (" + (file.length() - goodLength) + " bytes)");
+                try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                    raf.setLength(goodLength);
+                } catch (IOException e) {
+                    System.err.println("⚠️ Error truncating journal: " + file);
+                }
+            }
+        }
+        nextSeq = maxSeq + 1;
+        synchronized (fileLock) {
+            writtenSeq = maxSeq;
+            durableSeq = maxSeq;
+        }
+    }
+
+    // Queues the record for the writer thread. The future completes with the record's
+    // sequence number once it is durable, or with -1 if it could not be written.
+    public CompletableFuture<Long> append(String op, String... fields) {
+        Pending p;
+        synchronized (this) {
+            if (closed) return CompletableFuture.completedFuture(-1L);
+            p = new Pending(nextSeq, new JournalRecord(nextSeq, op, fields).encode().getBytes(StandardCharsets.UTF_8));
+            nextSeq++;
+            queue.add(p);
+        }
+        return p.done;
+    }
+
+    // Queues a record shipped from a replication primary under the primary's sequence
+    // number. Returns false, queueing nothing, if this journal already has that record.
+    public boolean appendReplicated(JournalRecord record) {
+        synchronized (this) {
+            if (closed || record.getSeq() < nextSeq) return false;
+            nextSeq = record.getSeq() + 1;
+            queue.add(new Pending(record.getSeq(), record.encode().getBytes(StandardCharsets.UTF_8)));
+        }
+        return true;
+    }
+
+    // Starts feeding sink every durable record after afterSeq: first the ones already
+    // in the file, then each batch as it becomes durable, in order and without gaps.
+    // Records the snapshot covers may come again and are skipped by the replica.
+    // Returns false, and does not register sink, if the journal no longer holds all of
+    // them (they were compacted into a snapshot) or afterSeq is beyond the durable end.
+    public boolean follow(long afterSeq, Consumer<byte[]> sink) {
+        synchronized (fileLock) {
+            synchronized (this) {
+                if (afterSeq < snapshotSeq || afterSeq > Math.max(durableSeq, snapshotSeq)) return false;
+            }
+            ByteArrayOutputStream tail = new ByteArrayOutputStream();
+            if (file.exists()) {
+                try (BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = br.readLine()) != null) {
+                        JournalRecord record = JournalRecord.decode(line);
+                        if (record != null && record.getSeq() > afterSeq && record.getSeq() <= durableSeq) {
+                            tail.writeBytes((line + '\n').getBytes(StandardCharsets.UTF_8));
+                        }
+                    }
+                } catch (IOException e) {
+                    System.err.println("⚠️ Error reading journal: " + file);
+                    return false;
+                }
+            }
+            if (tail.size() > 0) sink.accept(tail.toByteArray());
+            followers.add(sink);
+            return true;
+        }
+    }
+
+    public void unfollow(Consumer<byte[]> sink) {
+        followers.remove(sink);
+    }
+
+    // Waits until the appended record is durable and reports whether it was written.
+    // In INTERVAL mode the caller does not wait and the change counts as saved.
+    public boolean await(CompletableFuture<Long> appended) {
+        if (durability == Durability.INTERVAL && !appended.isDone()) return true;
+        return appended.join() >= 0;
+    }
+
+    // Writes out everything queued so far, fsyncs it and stops the writer thread.
+    public void close() {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            queue.add(CLOSE);
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (fileLock) {
+            try {
+                if (out != null) out.close();
+            } catch (IOException e) {
+                System.err.println("⚠️ Error closing journal: " + file);
+            }
+            out = null;
+        }
+    }
+
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>();
+        List<Pending> unsynced = new ArrayList<>();
+        long syncDeadline = 0;
+        boolean closing = false;
+        while (!closing) {
+            Pending first;
+            try {
+                first = unsynced.isEmpty() ? queue.take() : queue.poll(syncDeadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            batch.clear();
+            if (first != null) {
+                batch.add(first);
+                queue.drainTo(batch);
+            }
+            closing = batch.remove(CLOSE);
+            switch (durability) {
+                case EVERY_OP -> {
+                    for (Pending p : batch) write(List.of(p), true);
+                }
+                case GROUP_COMMIT -> write(batch, true);
+                case INTERVAL -> {
+                    if (write(batch, false)) {
+                        if (unsynced.isEmpty()) syncDeadline = System.nanoTime() + FLUSH_INTERVAL_NANOS;
+                        unsynced.addAll(batch);
+                    }
+                }
+            }
+            if (!unsynced.isEmpty() && (closing || System.nanoTime() - syncDeadline >= 0)) {
+                sync(unsynced);
+                unsynced.clear();
+            }
+        }
+    }
+
+    // Writes the batch with a single write call and, if asked to, fsyncs it and
+    // completes the callers' futures. A failed write is cut back off the file so the
+    // records after it are not hidden behind a torn one on replay.
+    private boolean write(List<Pending> batch, boolean sync) {
+        if (batch.isEmpty()) return true;
+        long start = System.nanoTime();
+        synchronized (fileLock) {
+            long length = -1;
+            try {
+                if (out == null) out = new FileOutputStream(file, true);
+                length = out.getChannel().size();
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                for (Pending p : batch) bytes.writeBytes(p.bytes);
+                byte[] data = bytes.toByteArray();
+                out.write(data);
+                if (sync) out.getFD().sync();
+                Metrics.JOURNAL_BYTES.add(data.length);
+                writtenSeq = batch.get(batch.size() - 1).seq;
+                unshipped.writeBytes(data);
+                if (sync) ship();
+            } catch (IOException e) {
+                System.err.println("⚠️ Error writing journal: " + file);
+                try {
+                    if (out != null && length >= 0) out.getChannel().truncate(length);
+                } catch (IOException ignored) {
+                    // Replay stops at the torn record either way.
+                }
+                for (Pending p : batch) p.done.complete(-1L);
+                Metrics.JOURNAL_WRITE.record(start, false);
+                return false;
+            }
+        }
+        Metrics.JOURNAL_WRITE.record(start, true);
+        if (sync) for (Pending p : batch) p.done.complete(p.seq);
+        return true;
+    }
+
+    // Fsyncs records an earlier write(batch, false) already wrote, and completes their
+    // futures. If the file was rewritten by compaction since, the rewrite synced them.
+    private void sync(List<Pending> written) {
+        boolean synced = true;
+        synchronized (fileLock) {
+            try {
+                if (out != null) out.getFD().sync();
+                ship();
+            } catch (IOException e) {
+                System.err.println("⚠️ Error syncing journal: " + file);
+                synced = false;
+            }
+        }
+        for (Pending p : written) p.done.complete(synced ? p.seq : -1L);
+    }
+
+    // Everything written so far is on disk now: hands it to the followers.
+    // Caller holds fileLock.
+    private void ship() {
+        durableSeq = writtenSeq;
+        if (unshipped.size() == 0) return;
+        byte[] data = unshipped.toByteArray();
+        unshipped.reset();
+        for (Consumer<byte[]> follower : followers) follower.accept(data);
+    }
+
+    public synchronized long lastSeq() {
+        return nextSeq - 1;
+    }
+
+    // The last record written to the file and synced, so it survives a crash.
+    public long durableSeq() {
+        return durableSeq;
+    }
+
+    public synchronized long recordsSinceSnapshot() {
+        return nextSeq - 1 - snapshotSeq;
+    }
+
+    // Called once a snapshot covering everything up to seq has been committed:
+    // rewrites the journal so it only holds the records that came after it.
+    // Records still queued for the writer are appended to the rewritten file.
+    // A replica given a newer snapshot by its primary also moves on past its seq.
+    public void truncateThrough(long seq) {
+        synchronized (this) {
+            snapshotSeq = Math.max(snapshotSeq, seq);
+            nextSeq = Math.max(nextSeq, seq + 1);
+        }
+        synchronized (fileLock) {
+            truncateFile(seq);
+        }
+    }
+
+    private void truncateFile(long seq) {
+        if (!file.exists()) return;
+        File tmp = new File(file.getPath() + ".tmp");
+        try {
+            if (out != null) {
+                out.close();
+                out = null;
+            }
+            try (BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+                 FileOutputStream fos = new FileOutputStream(tmp);
+                 BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(fos, StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = br.readLine()) != null) {
+                    JournalRecord record = JournalRecord.decode(line);
+                    if (record != null && record.getSeq() > seq) {
+                        bw.write(line);
+                        bw.write('\n');
+                    }
+                }
+                bw.flush();
+                fos.getFD().sync();
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            ship();
+        } catch (IOException e) {
+            // Not fatal: the records are still covered by the snapshot and skipped on replay.
+            System.err.println("⚠️ Error compacting journal: " + file);
+            tmp.delete();
+        }
+    }
+}
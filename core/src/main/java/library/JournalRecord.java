@@ -0,0 +1,82 @@
+package library;
+
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+// Append-only log of mutations. Every change is written as one line:
+//   <seq> TAB <op> TAB <field>... TAB <crc32>
+// State is rebuilt by loading the latest snapshot and replaying the records after it.
+class JournalRecord {
+    private final long seq;
+    private final String op;
+    private final String[] fields;
+
+    public JournalRecord(long seq, String op, String[] fields) {
+        this.seq = seq;
+        this.op = op;
+        this.fields = fields;
+    }
+
+    public long getSeq() { return seq; }
+    public String getOp() { return op; }
+    public String[] getFields() { return fields; }
+
+    public String encode() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(seq).append('\t').append(escape(op));
+        for (String f : fields) sb.append('\t').append(escape(f));
+        CRC32 crc = new CRC32();
+        crc.update(sb.toString().getBytes(StandardCharsets.UTF_8));
+        return sb.append('\t').append(Long.toHexString(crc.getValue())).append('\n').toString();
+    }
+
+    // Returns null for a record that is damaged (bad checksum or missing fields).
+    public static JournalRecord decode(String line) {
+        int lastTab = line.lastIndexOf('\t');
+        if (lastTab < 0) return null;
+        String body = line.substring(0, lastTab);
+        CRC32 crc = new CRC32();
+        crc.update(body.getBytes(StandardCharsets.UTF_8));
+        if (!Long.toHexString(crc.getValue()).equals(line.substring(lastTab + 1))) return null;
+
+        String[] parts = body.split("\t", -1);
+        if (parts.length < 2) return null;
+        try {
+            String[] fields = new String[parts.length - 2];
+            for (int i = 0; i < fields.length; i++) fields[i] = unescape(parts[i + 2]);
+            return new JournalRecord(Long.parseLong(parts[0]), unescape(parts[1]), fields);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String escape(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '\\' -> sb.append("\\\\");
+                case '\t' -> sb.append("\\t");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                default -> sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String unescape(String s) {
+        if (s.indexOf('\\') < 0) return s;
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\\' && i + 1 < s.length()) {
+                char n = s.charAt(++i);
+                sb.append(n == 't' ? '\t' : n == 'n' ? '\n' : n == 'r' ? '\r' : n);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
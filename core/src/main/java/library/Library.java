@@ -0,0 +1,1106 @@
+package library;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+class Library {
+    private Catalog books = new Catalog();
+    private final Queue<Transaction> transactions = new ConcurrentLinkedQueue<>();
+    private final LoanIndex loans = new LoanIndex();
+    private final RankedCounter borrowCounts = new RankedCounter();
+    private final RankedCounter userFines = new RankedCounter();
+    private final int reportTopK = Math.max(1, Integer.getInteger("library.reportTopK", 10));
+    private final int bookPageSize = Integer.getInteger("library.pageSize", 20);
+    // Closed loans returned longer ago than this move from memory to the archive.
+    private final int archiveAfterDays = Integer.getInteger("library.archiveAfterDays", 365);
+    private final int dueSoonDays = Integer.getInteger("library.dueSoonDays", 3);
+    private final String BOOK_FILE = "books.csv";
+    private final String TRANSACTION_FILE = "transactions.csv";
+    private final String CSV_SNAPSHOT_FILE = "library.snapshot";
+    private final String SNAPSHOT_FILE = "library.snap";
+    private final String JOURNAL_FILE = "library.journal";
+    private final String ARCHIVE_DIR = "archive";
+    private final String CIRCULATION_FILE = "circulation.csv";
+    private final String CIRCULATION_TOP_FILE = "circulation-top.csv";
+    private static final int SNAPSHOT_MAGIC = 0x4C4D534C; // "LMSL"
+    private static final int SNAPSHOT_VERSION = 2;
+    private static final long COMPACT_THRESHOLD = 10_000;
+    private static final int HISTORY_PAGE_SIZE = 10;
+    private static final long FINE_PER_DAY = 10;
+    private static final OperationResult SAVE_FAILED = OperationResult.failed("❌ Could not save the change. Please try again.");
+    private final File dataDir;
+    // Address of the primary this library is a read-only replica of; null on a primary.
+    private final String primary;
+    private final Journal journal;
+    private final LoanArchive archive;
+    private final ScheduledFuture<?> compaction;
+    private final ScheduledFuture<?> archival;
+    private final ScheduledFuture<?> accrual;
+    private final Object archiving = new Object();
+    private final Object accruing = new Object();
+    private final Object snapshotting = new Object();
+    private long copiesTaken;            // guarded by the write side of `mutations`
+    private long lastCopyWritten = -1;   // guarded by `snapshotting`
+    private volatile int accruedThrough = Integer.MIN_VALUE;
+    // Column copies for circulation analytics, guarded by `analytics`. The live copy
+    // is built once; after that borrows and returns are queued and the next query
+    // folds them in. Archival, or a backlog nobody queries, drops it for a rebuild.
+    // The archived copy is rebuilt only after the archive grew.
+    private static final int COLUMN_BACKLOG = 1 << 20;
+    private final Object analytics = new Object();
+    private final Queue<Transaction> borrowedSinceColumns = new ConcurrentLinkedQueue<>();
+    private final Queue<Transaction> returnedSinceColumns = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger columnBacklog = new AtomicInteger();
+    private volatile boolean columnsTracked; // changed under the write side of `mutations`, or to false when the backlog overflows
+    private LoanColumns.Builder liveColumns;
+    private LoanColumns archivedColumns;
+    private int archivedColumnsWatermark = Integer.MIN_VALUE;
+    // Borrow/return/add/delete on one ISBN are serialized by that ISBN's stripe.
+    // Every mutation also holds the shared side of `mutations`; compaction takes the
+    // exclusive side only while it copies state, so the snapshot is a consistent cut.
+    private final ReentrantLock[] stripes = new ReentrantLock[64];
+    private final ReentrantReadWriteLock mutations = new ReentrantReadWriteLock();
+
+    public Library() {
+        this(new File("."));
+    }
+
+    public Library(File dataDir) {
+        this(dataDir, null);
+    }
+
+    // A replica's journal only needs INTERVAL durability: whatever a crash loses is
+    // shipped again from the primary. Archival is left to the primary, which sends
+    // replicas the result.
+    private Library(File dataDir, String primary) {
+        this.dataDir = dataDir;
+        this.primary = primary;
+        this.journal = new Journal(path(JOURNAL_FILE), primary == null ? Durability.configured() : Durability.INTERVAL);
+        this.archive = new LoanArchive(new File(dataDir, ARCHIVE_DIR));
+        for (int i = 0; i < stripes.length; i++) stripes[i] = new ReentrantLock();
+        // The binary snapshot is the normal starting point; the CSV files are only
+        // read when there is none yet (data from older versions, or a fresh import).
+        File snapshot = new File(dataDir, SNAPSHOT_FILE);
+        long snapshotSeq = snapshot.exists() ? loadSnapshot(snapshot) : loadCsv();
+        for (Transaction t : transactions) {
+            loans.add(t);
+            borrowCounts.add(t.getIsbn(), 1);
+            userFines.add(t.getUsername(), t.getFine());
+            // Which copies are out follows from the open loans, not from the book records.
+            if (!t.isReturned()) {
+                Book book = findBook(t.getIsbn());
+                if (book != null) books.lend(book, t.getCopy());
+            }
+        }
+        journal.replay(snapshotSeq, this::applyRecord);
+        dropArchived();
+        // Archived loans still count towards the reports.
+        archive.load(t -> {
+            borrowCounts.add(t.getIsbn(), 1);
+            userFines.add(t.getUsername(), t.getFine());
+        });
+        accrueFines();
+        this.compaction = Journal.schedule(this::compactIfNeeded, 30);
+        this.archival = primary == null ? Journal.schedule(this::archive, 3600) : null;
+        // Checked hourly; the work itself happens once per day.
+        this.accrual = Journal.schedule(this::accrueFines, 3600);
+    }
+
+    // Opens a read-only copy of the library at primary, kept up to date by ReplicaClient.
+    static Library replica(File dataDir, String primary) {
+        return new Library(dataDir, primary);
+    }
+
+    public boolean isReplica() {
+        return primary != null;
+    }
+
+    // Stops background compaction, archival and fine accrual and closes the journal.
+    public void close() {
+        compaction.cancel(false);
+        if (archival != null) archival.cancel(false);
+        accrual.cancel(false);
+        journal.close();
+    }
+
+    public void addBook(Book book) {
+        System.out.println(add(book));
+    }
+
+    public OperationResult add(Book book) {
+        long start = System.nanoTime();
+        OperationResult result = tryAdd(book);
+        Metrics.ADD_BOOK.record(start, result.isSuccess());
+        return result;
+    }
+
+    // Adding an ISBN that is already in the catalog adds copies to that title.
+    private OperationResult tryAdd(Book book) {
+        if (isReplica()) return readOnly();
+        if (book.getCopies() < 1) return OperationResult.failed("⚠️ Add at least one copy.");
+        Lock lock = lockIsbn(book.getIsbn());
+        try {
+            Book existing = findBook(book.getIsbn());
+            if (existing != null) {
+                if (!existing.getTitle().equalsIgnoreCase(book.getTitle().trim())) {
+                    return OperationResult.failed("⚠️ This ISBN belongs to " + existing.getTitle() + ".");
+                }
+                if (!record("ADD_COPIES", book.getIsbn(), Integer.toString(book.getCopies()))) return SAVE_FAILED;
+                books.addCopies(existing, book.getCopies());
+                return OperationResult.ok("✅ Added " + book.getCopies() + " copies; " + existing.getCopies() + " in total.");
+            }
+            if (!record("ADD_BOOK", book.getTitle(), book.getAuthor(), book.getIsbn(), Integer.toString(book.getCopies()))) {
+                return SAVE_FAILED;
+            }
+            books.add(book);
+        } finally {
+            unlock(lock);
+        }
+        return OperationResult.ok("✅ Book added successfully!");
+    }
+
+    // Prints one page of the catalog and returns it, so the caller can offer its neighbours.
+    public BookPage displayBooks(BookOrder order, String cursor) {
+        BookPage page = listBooks(order, cursor, bookPageSize);
+        if (books.isEmpty()) {
+            System.out.println("📚 No books available.");
+            return page;
+        }
+        System.out.println("\n--- Library Books (by " + order.name().toLowerCase(Locale.ROOT) + ") ---");
+        page.stream().forEach(System.out::println);
+        return page;
+    }
+
+    // A page of books in the given order, starting after (or, going back, ending
+    // before) the cursor; a null cursor gives the first page. The page is a seek
+    // into the order's sorted index plus pageSize steps, however deep it is.
+    public BookPage listBooks(BookOrder order, String cursor, int pageSize) {
+        long start = System.nanoTime();
+        if (order == BookOrder.RELEVANCE) throw new IllegalArgumentException("Books can only be listed by title, author or isbn.");
+        BookCursor at = cursor == null ? null : BookCursor.decode(cursor, order);
+        NavigableSet<Book> all = books.sorted(order);
+        NavigableSet<Book> view = at == null ? all
+                : at.forward ? all.tailSet(at.anchor, false) : all.headSet(at.anchor, false).descendingSet();
+        // Only the two ends of the page are kept; its books are read again when streamed.
+        Book near = null, far = null;
+        int n = 0;
+        boolean more = false;
+        for (Book b : view) {
+            if (n == pageSize) {
+                more = true;
+                break;
+            }
+            if (n++ == 0) near = b;
+            far = b;
+        }
+        boolean forward = at == null || at.forward;
+        Book first = forward ? near : far, last = forward ? far : near;
+        boolean hasNext = forward ? more : last != null && all.higher(last) != null;
+        boolean hasPrevious = forward ? first != null && all.lower(first) != null : more;
+        Metrics.LIST_BOOKS.record(start, true);
+        // Books added between the two ends since are streamed too, rather than
+        // cutting the page short before its last book.
+        return new BookPage(first, last, () -> first == null ? Stream.empty()
+                : all.subSet(first, true, last, true).stream(), order, hasNext, hasPrevious);
+    }
+
+    public Collection<Book> getBooks() {
+        return Collections.unmodifiableCollection(books.all());
+    }
+
+    // Catalog-wide totals, as the report shows them.
+    long copies() {
+        return books.copies();
+    }
+
+    long availableCopies() {
+        return books.availableCopies();
+    }
+
+    public BookPage searchBook(String keyword, BookOrder order, String cursor) {
+        BookPage page = searchBooks(keyword, order, cursor, bookPageSize);
+        page.stream().forEach(b -> System.out.println("🔎 Found: " + b));
+        if (page.isEmpty() && cursor == null) System.out.println("❌ No book found.");
+        return page;
+    }
+
+    // Search results a page at a time, best match first or in title, author or ISBN order.
+    // The first page sorts the matches once and the catalog caches them until it
+    // changes; every later page is a binary search for the cursor in that array.
+    public BookPage searchBooks(String keyword, BookOrder order, String cursor, int pageSize) {
+        long start = System.nanoTime();
+        BookCursor at = cursor == null ? null : BookCursor.decode(cursor, order);
+        Book exact = books.get(keyword.trim());
+        Book[] matches = exact != null ? new Book[] {exact} : books.matches(keyword, order);
+        int from = 0, to = Math.min(pageSize, matches.length);
+        if (at != null) {
+            int i = Arrays.binarySearch(matches, at.anchor, order.comparator(keyword));
+            // The anchor itself belongs to the page the cursor came from.
+            int edge = i >= 0 ? (at.forward ? i + 1 : i) : -i - 1;
+            from = at.forward ? edge : Math.max(0, edge - pageSize);
+            to = at.forward ? Math.min(edge + pageSize, matches.length) : edge;
+        }
+        int lo = from, hi = to;
+        Metrics.SEARCH.record(start, true);
+        return new BookPage(lo < hi ? matches[lo] : null, lo < hi ? matches[hi - 1] : null,
+                () -> Arrays.stream(matches, lo, hi), order, hi < matches.length, lo > 0);
+    }
+
+    public void deleteBook(String isbn) {
+        System.out.println(remove(isbn));
+    }
+
+    public OperationResult remove(String isbn) {
+        long start = System.nanoTime();
+        OperationResult result = tryRemove(isbn);
+        Metrics.DELETE_BOOK.record(start, result.isSuccess());
+        return result;
+    }
+
+    private OperationResult tryRemove(String isbn) {
+        if (isReplica()) return readOnly();
+        Lock lock = lockIsbn(isbn);
+        try {
+            Book book = findBook(isbn);
+            if (book == null) return OperationResult.failed("❌ Book not found.");
+            // An open loan of a deleted title could never be returned and would accrue fines forever.
+            if (book.getAvailable() < book.getCopies()) return OperationResult.failed("⚠️ Copies of this book are still on loan.");
+            if (!record("DELETE_BOOK", isbn)) return SAVE_FAILED;
+            books.remove(isbn);
+        } finally {
+            unlock(lock);
+        }
+        return OperationResult.ok("🗑️ Book deleted.");
+    }
+
+    public void borrowBook(String isbn, String username) {
+        System.out.println(checkOut(isbn, username));
+    }
+
+    public OperationResult checkOut(String isbn, String username) {
+        long start = System.nanoTime();
+        OperationResult result = tryCheckOut(isbn, username);
+        Metrics.BORROW.record(start, result.isSuccess());
+        return result;
+    }
+
+    private OperationResult tryCheckOut(String isbn, String username) {
+        if (isReplica()) return readOnly();
+        Book book;
+        String due;
+        int copy;
+        Lock lock = lockIsbn(isbn);
+        try {
+            book = findBook(isbn);
+            if (book == null) return OperationResult.failed("❌ ISBN not found.");
+            if (findOpenLoan(isbn, username) != null) return OperationResult.failed("⚠️ You already have a copy of this book.");
+            copy = book.freeCopy();
+            if (copy < 0) return OperationResult.failed("⚠️ This book is not available.");
+            int issueDay = EpochDays.today();
+            int dueDay = issueDay + 7;
+            due = EpochDays.format(dueDay);
+            if (!record("BORROW", username, isbn, EpochDays.format(issueDay), due, Integer.toString(copy))) return SAVE_FAILED;
+            applyBorrow(book, username, issueDay, dueDay, copy);
+        } finally {
+            unlock(lock);
+        }
+        String which = book.getCopies() > 1 ? " (copy " + copy + ")" : "";
+        return OperationResult.ok("📖 Borrowed: " + book.getTitle() + which + "\n📅 Due: " + due);
+    }
+
+    public void returnBook(String isbn, String username) {
+        System.out.println(checkIn(isbn, username));
+    }
+
+    public OperationResult checkIn(String isbn, String username) {
+        long start = System.nanoTime();
+        OperationResult result = tryCheckIn(isbn, username);
+        Metrics.RETURN.record(start, result.isSuccess());
+        return result;
+    }
+
+    private OperationResult tryCheckIn(String isbn, String username) {
+        if (isReplica()) return readOnly();
+        Book book;
+        long lateDays;
+        long fine;
+        Lock lock = lockIsbn(isbn);
+        try {
+            book = findBook(isbn);
+            if (book == null) return OperationResult.failed("❌ ISBN not found.");
+            Transaction activeTransaction = findOpenLoan(isbn, username);
+            if (activeTransaction == null) {
+                return OperationResult.failed("⚠️ This book was not issued to you, or has already been returned.");
+            }
+            int today = EpochDays.today();
+            lateDays = today - activeTransaction.getDueDay();
+            fine = fineFor(activeTransaction.getDueDay(), today);
+            if (!record("RETURN", username, isbn, EpochDays.format(today), Long.toString(fine))) return SAVE_FAILED;
+            applyReturn(book, activeTransaction, today, fine);
+        } finally {
+            unlock(lock);
+        }
+
+        String onTime = fine > 0 ? "⚠️ Late by " + lateDays + " days. Fine = ₹" + fine : "✅ Returned on time!";
+        return OperationResult.ok(onTime + "\n✅ You returned: " + book.getTitle());
+    }
+
+    // Prints one page of the user's history, newest first. Returns true if older records remain.
+    public boolean viewUserHistory(String username, int page) {
+        if (page == 0) System.out.println("\n--- Borrowing History of " + username + " ---");
+        List<Transaction> records = getUserHistory(username, page);
+        if (records.isEmpty()) {
+            if (page == 0) System.out.println("📭 No records found.");
+            return false;
+        }
+        for (Transaction t : records) System.out.println(t);
+        return hasMoreHistory(username, page);
+    }
+
+    // Recent loans come from memory; once those run out the page continues from the archive.
+    public List<Transaction> getUserHistory(String username, int page) {
+        long start = System.nanoTime();
+        List<Transaction> records = new ArrayList<>(loans.historyPage(username, page, HISTORY_PAGE_SIZE));
+        if (records.size() < HISTORY_PAGE_SIZE && archive.count(username) > 0) {
+            int skip = Math.max(0, page * HISTORY_PAGE_SIZE - loans.historySize(username));
+            records.addAll(archive.history(username, skip, HISTORY_PAGE_SIZE - records.size()));
+        }
+        Metrics.HISTORY.record(start, true);
+        return records;
+    }
+
+    public boolean hasMoreHistory(String username, int page) {
+        return loans.historySize(username) + archive.count(username) > (page + 1) * HISTORY_PAGE_SIZE;
+    }
+
+    public void generateReports() {
+        System.out.println("\n===== 📊 Library Reports =====");
+        for (String line : reportLines()) System.out.println(line);
+        System.out.println("==============================");
+    }
+
+    public List<String> reportLines() {
+        long start = System.nanoTime();
+        List<String> result = buildReport();
+        Metrics.REPORTS.record(start, true);
+        return result;
+    }
+
+    private List<String> buildReport() {
+        List<String> lines = new ArrayList<>();
+        long copies = books.copies();
+        lines.add("1. Total Books: " + books.size() + " titles (" + copies + " copies)");
+
+        long available = books.availableCopies();
+        lines.add("2. Available Copies: " + available);
+        lines.add("3. Issued Copies: " + (copies - available));
+
+        if (!borrowCounts.isEmpty()) {
+            lines.add("4. Most Borrowed Books:");
+            int rank = 1;
+            for (Map.Entry<String, Long> e : borrowCounts.top(reportTopK)) {
+                Book b = findBook(e.getKey());
+                String name = b != null ? b.getTitle() : "ISBN " + e.getKey() + " (deleted)";
+                lines.add("   " + rank++ + ") " + name + " (" + e.getValue() + " times)");
+            }
+        } else lines.add("4. Most Borrowed Book: None yet.");
+
+        if (!userFines.isEmpty()) {
+            lines.add("5. Users with Highest Fines:");
+            int rank = 1;
+            for (Map.Entry<String, Long> e : userFines.top(reportTopK)) {
+                lines.add("   " + rank++ + ") " + e.getKey() + " (₹" + e.getValue() + ")");
+            }
+        } else lines.add("5. User with Highest Fine: None yet.");
+        return lines;
+    }
+
+    public void printOutstandingFines() {
+        System.out.println("\n===== 💰 Outstanding Fines =====");
+        for (String line : outstandingFineLines()) System.out.println(line);
+        System.out.println("================================");
+    }
+
+    // Reads only open loans, through the due-date index: cost follows the number
+    // of overdue and due-soon loans, not the size of the loan history.
+    public List<String> outstandingFineLines() {
+        long start = System.nanoTime();
+        accrueFines();
+        int today = EpochDays.today();
+        Map<String, long[]> perUser = new HashMap<>(); // username -> {fine, loans}
+        long overdue = 0;
+        long total = 0;
+        for (Transaction t : loans.overdue(today)) {
+            if (t.isReturned()) continue;
+            long[] sum = perUser.computeIfAbsent(t.getUsername(), k -> new long[2]);
+            sum[0] += t.getFine();
+            sum[1]++;
+            overdue++;
+            total += t.getFine();
+        }
+        List<String> lines = new ArrayList<>();
+        lines.add("1. Overdue Loans: " + overdue);
+        lines.add("2. Outstanding Fines: ₹" + total);
+        if (!perUser.isEmpty()) {
+            lines.add("3. Users with Highest Outstanding Fines:");
+            List<Map.Entry<String, long[]>> ranked = new ArrayList<>(perUser.entrySet());
+            ranked.sort((a, b) -> Long.compare(b.getValue()[0], a.getValue()[0]));
+            int rank = 1;
+            for (Map.Entry<String, long[]> e : ranked.subList(0, Math.min(reportTopK, ranked.size()))) {
+                lines.add("   " + rank++ + ") " + e.getKey() + " (₹" + e.getValue()[0] + ", "
+                        + e.getValue()[1] + " overdue)");
+            }
+        } else lines.add("3. Users with Outstanding Fines: None.");
+
+        List<Transaction> dueSoon = loansDueWithin(dueSoonDays);
+        lines.add("4. Due in the Next " + dueSoonDays + " Days: " + dueSoon.size());
+        for (Transaction t : dueSoon.subList(0, Math.min(reportTopK, dueSoon.size()))) {
+            Book b = findBook(t.getIsbn());
+            String name = b != null ? b.getTitle() : "ISBN " + t.getIsbn();
+            lines.add("   - " + name + " → " + t.getUsername() + " (due " + t.getDueDate() + ")");
+        }
+        if (dueSoon.size() > reportTopK) lines.add("   ... and " + (dueSoon.size() - reportTopK) + " more");
+        Metrics.FINES_REPORT.record(start, true);
+        return lines;
+    }
+
+    // Open loans past their due date, oldest due date first.
+    public List<Transaction> overdueLoans() {
+        return openLoans(loans.overdue(EpochDays.today()));
+    }
+
+    // Open loans due from today through the given number of days ahead, soonest first.
+    public List<Transaction> loansDueWithin(int days) {
+        int today = EpochDays.today();
+        return openLoans(loans.dueBetween(today, today + Math.max(0, days)));
+    }
+
+    private static List<Transaction> openLoans(Collection<Transaction> view) {
+        List<Transaction> result = new ArrayList<>();
+        for (Transaction t : view) if (!t.isReturned()) result.add(t);
+        return result;
+    }
+
+    static long fineFor(int dueDay, int day) {
+        return day > dueDay ? (day - dueDay) * FINE_PER_DAY : 0;
+    }
+
+    // Brings the fine on every overdue loan up to today, so the fines report shows
+    // what is owed now rather than only what was charged at return. Accrued fines
+    // are derived state: they are not journaled, and are recomputed on startup.
+    private void accrueFines() {
+        int today = EpochDays.today();
+        if (accruedThrough >= today) return;
+        synchronized (accruing) {
+            if (accruedThrough >= today) return;
+            long start = System.nanoTime();
+            for (Transaction t : loans.overdue(today)) {
+                String isbn = t.getIsbn();
+                Lock lock = lockIsbn(isbn);
+                try {
+                    if (t.isReturned()) continue;
+                    long fine = fineFor(t.getDueDay(), today);
+                    userFines.add(t.getUsername(), fine - t.getFine());
+                    t.setFine(fine);
+                } finally {
+                    unlock(lock);
+                }
+            }
+            accruedThrough = today;
+            Metrics.ACCRUE_FINES.record(start, true);
+        }
+    }
+
+    // Circulation between two dates (inclusive), by day, week or month, including
+    // archived loans when the window reaches back past the archive watermark.
+    public CirculationStats circulation(int fromDay, int toDay, CirculationStats.Period period) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            CirculationStats stats = CirculationStats.compute(columns(fromDay), fromDay, toDay, period, ForkJoinPool.commonPool());
+            success = true;
+            return stats;
+        } finally {
+            Metrics.CIRCULATION.record(start, success);
+        }
+    }
+
+    public List<String> circulationLines(CirculationStats stats) {
+        List<String> lines = new ArrayList<>();
+        lines.add("Window: " + EpochDays.format(stats.fromDay) + " to " + EpochDays.format(stats.toDay)
+                + " by " + stats.period.name().toLowerCase(Locale.ROOT));
+        lines.add("1. Borrows: " + stats.totalBorrows() + ", Returns: " + stats.totalReturns());
+        lines.add(String.format(Locale.ROOT, "2. Average Loan: %.1f days", stats.averageLoanDays()));
+        lines.add(String.format(Locale.ROOT, "3. Late Returns: %d (%.1f%%)", stats.totalLateReturns(), stats.lateReturnRate() * 100));
+        lines.add("4. Per " + stats.period.name().toLowerCase(Locale.ROOT) + " (borrows / returns):");
+        for (int p = 0; p < stats.periodStarts.length; p++) {
+            if (stats.borrows[p] == 0 && stats.returns[p] == 0) continue;
+            lines.add("   " + EpochDays.format(stats.periodStarts[p]) + "  " + stats.borrows[p] + " / " + stats.returns[p]);
+        }
+        List<Map.Entry<String, Long>> titles = topTitles(stats);
+        if (!titles.isEmpty()) {
+            lines.add("5. Most Borrowed Titles:");
+            int rank = 1;
+            for (Map.Entry<String, Long> e : titles) lines.add("   " + rank++ + ") " + e.getKey() + " (" + e.getValue() + " times)");
+        } else lines.add("5. Most Borrowed Title: None in this window.");
+        List<Map.Entry<String, Long>> authors = topAuthors(stats);
+        if (!authors.isEmpty()) {
+            lines.add("6. Most Borrowed Authors:");
+            int rank = 1;
+            for (Map.Entry<String, Long> e : authors) lines.add("   " + rank++ + ") " + e.getKey() + " (" + e.getValue() + " times)");
+        } else lines.add("6. Most Borrowed Author: None in this window.");
+        return lines;
+    }
+
+    // Writes the per-period table to circulation.csv and the top titles and
+    // authors to circulation-top.csv.
+    public OperationResult exportCirculation(CirculationStats stats) {
+        List<String> rows = new ArrayList<>();
+        rows.add("period_start,borrows,returns,average_loan_days,late_returns");
+        for (int p = 0; p < stats.periodStarts.length; p++) {
+            double average = stats.returns[p] == 0 ? 0 : (double) stats.loanDays[p] / stats.returns[p];
+            rows.add(Csv.format(EpochDays.format(stats.periodStarts[p]), Long.toString(stats.borrows[p]),
+                    Long.toString(stats.returns[p]), String.format(Locale.ROOT, "%.2f", average),
+                    Long.toString(stats.lateReturns[p])));
+        }
+        List<String> top = new ArrayList<>();
+        top.add("kind,rank,name,borrows");
+        int rank = 1;
+        for (Map.Entry<String, Long> e : topTitles(stats)) top.add(Csv.format("title", Integer.toString(rank++), e.getKey(), e.getValue().toString()));
+        rank = 1;
+        for (Map.Entry<String, Long> e : topAuthors(stats)) top.add(Csv.format("author", Integer.toString(rank++), e.getKey(), e.getValue().toString()));
+        FileManager.saveData(path(CIRCULATION_FILE), rows, Function.identity());
+        FileManager.saveData(path(CIRCULATION_TOP_FILE), top, Function.identity());
+        return OperationResult.ok("📤 Exported " + (rows.size() - 1) + " periods to " + CIRCULATION_FILE
+                + " and the top titles and authors to " + CIRCULATION_TOP_FILE);
+    }
+
+    private List<Map.Entry<String, Long>> topTitles(CirculationStats stats) {
+        List<Map.Entry<String, Long>> result = new ArrayList<>();
+        for (int id : stats.topIsbns(reportTopK)) {
+            String isbn = SymbolTable.ISBNS.name(id);
+            Book b = findBook(isbn);
+            result.add(Map.entry(b != null ? b.getTitle() : "ISBN " + isbn + " (deleted)", (long) stats.borrowsByIsbn[id]));
+        }
+        return result;
+    }
+
+    // Only books still in the catalog have a known author.
+    private List<Map.Entry<String, Long>> topAuthors(CirculationStats stats) {
+        Map<String, Long> byAuthor = new HashMap<>();
+        for (int id = 0; id < stats.borrowsByIsbn.length; id++) {
+            if (stats.borrowsByIsbn[id] == 0) continue;
+            Book b = findBook(SymbolTable.ISBNS.name(id));
+            if (b != null) byAuthor.merge(b.getAuthor(), (long) stats.borrowsByIsbn[id], Long::sum);
+        }
+        List<Map.Entry<String, Long>> ranked = new ArrayList<>(byAuthor.entrySet());
+        ranked.sort(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+        return ranked.subList(0, Math.min(reportTopK, ranked.size()));
+    }
+
+    // Loans returned before the archive watermark were also issued before it,
+    // so a window starting at or after it never needs the archived columns.
+    private List<LoanColumns> columns(int fromDay) {
+        synchronized (analytics) {
+            LoanColumns live = liveColumns();
+            if (fromDay >= archive.watermark()) return List.of(live);
+            if (archivedColumns == null || archivedColumnsWatermark != archive.watermark()) {
+                synchronized (archiving) {
+                    archivedColumnsWatermark = archive.watermark();
+                    archivedColumns = LoanColumns.of(archive::forEach);
+                }
+            }
+            return List.of(live, archivedColumns);
+        }
+    }
+
+    // Caller holds `analytics`. The rebuild pauses changes so that every loan is
+    // either copied or queued, never both.
+    private LoanColumns liveColumns() {
+        if (!columnsTracked) {
+            mutations.writeLock().lock();
+            try {
+                untrackColumns();
+                liveColumns = new LoanColumns.Builder();
+                transactions.forEach(liveColumns::append);
+                columnsTracked = true;
+            } finally {
+                mutations.writeLock().unlock();
+            }
+            return liveColumns.view();
+        }
+        int drained = 0;
+        for (Transaction t; (t = borrowedSinceColumns.poll()) != null; drained++) liveColumns.append(t);
+        for (Transaction t; (t = returnedSinceColumns.poll()) != null; drained++) liveColumns.returned(t);
+        columnBacklog.addAndGet(-drained);
+        return liveColumns.view();
+    }
+
+    // A borrow is always queued before its return, so the drain above sees it first.
+    private void trackColumns(Queue<Transaction> queue, Transaction t) {
+        if (!columnsTracked) return;
+        if (columnBacklog.incrementAndGet() > COLUMN_BACKLOG) columnsTracked = false;
+        else queue.add(t);
+    }
+
+    // Caller holds the write side of `mutations`.
+    private void untrackColumns() {
+        columnsTracked = false;
+        borrowedSinceColumns.clear();
+        returnedSinceColumns.clear();
+        columnBacklog.set(0);
+    }
+
+    // Writes a fresh snapshot once enough records have piled up in the journal,
+    // so startup replay and the journal file both stay short.
+    private void compactIfNeeded() {
+        if (journal.recordsSinceSnapshot() >= COMPACT_THRESHOLD) compact();
+    }
+
+    public void compact() {
+        long start = System.nanoTime();
+        SnapshotCopy copy;
+        // Only the copy is taken under the lock; the disk writes happen outside it.
+        mutations.writeLock().lock();
+        try {
+            copy = copyState();
+        } finally {
+            mutations.writeLock().unlock();
+        }
+        writeSnapshot(copy);
+        Metrics.COMPACT.record(start, true);
+    }
+
+    // Moves closed loans returned more than archiveAfterDays ago out of memory and into
+    // the archive. The segment writes happen without holding any lock; checkouts only
+    // pause while the loans are dropped and the following snapshot is copied.
+    public OperationResult archive() {
+        long start = System.nanoTime();
+        OperationResult result = archiveOldLoans();
+        Metrics.ARCHIVE.record(start, result.isSuccess());
+        return result;
+    }
+
+    private OperationResult archiveOldLoans() {
+        if (isReplica()) return readOnly();
+        synchronized (archiving) {
+            int newWatermark = EpochDays.today() - archiveAfterDays;
+            if (newWatermark <= archive.watermark()) return OperationResult.ok("🗄️ Nothing to archive.");
+            // Loans are only ever returned today, so this set cannot change underneath us.
+            List<Transaction> old = new ArrayList<>();
+            for (Transaction t : transactions) {
+                if (t.isReturned() && t.getReturnDay() < newWatermark && !archive.covers(t)) old.add(t);
+            }
+            try {
+                archive.append(old, newWatermark);
+            } catch (IOException e) {
+                System.err.println("⚠️ Error writing archive: " + ARCHIVE_DIR);
+                return SAVE_FAILED;
+            }
+            if (old.isEmpty()) return OperationResult.ok("🗄️ Nothing to archive.");
+            SnapshotCopy copy;
+            mutations.writeLock().lock();
+            try {
+                transactions.removeIf(archive::covers);
+                loans.forget(archive::covers);
+                untrackColumns();
+                checkpoint();
+                copy = copyState();
+            } finally {
+                mutations.writeLock().unlock();
+            }
+            writeSnapshot(copy);
+            return OperationResult.ok("🗄️ Archived " + old.size() + " loans returned before "
+                    + EpochDays.format(newWatermark));
+        }
+    }
+
+    // Loads a publisher catalog (title,author,isbn per row; a header row is skipped)
+    // straight into the catalog, parsing the file in parallel. Imported books are not
+    // journaled one by one: a snapshot is taken before other changes resume, so
+    // checkouts wait while an import runs. ISBNs already in the catalog are skipped.
+    public OperationResult bulkImport(String filename) {
+        long start = System.nanoTime();
+        OperationResult result = importCatalog(filename);
+        Metrics.BULK_IMPORT.record(start, result.isSuccess());
+        return result;
+    }
+
+    private OperationResult importCatalog(String filename) {
+        if (isReplica()) return readOnly();
+        if (!new File(filename).exists()) return OperationResult.failed("❌ File not found: " + filename);
+        LongAdder added = new LongAdder();
+        LongAdder skipped = new LongAdder();
+        long start = System.nanoTime();
+        SnapshotCopy copy;
+        mutations.writeLock().lock();
+        try {
+            FileManager.forEachRecordParallel(filename, fields -> {
+                int copies = importedCopies(fields);
+                if (fields.length < 3 || fields[2].isBlank() || fields[2].trim().equalsIgnoreCase("isbn") || copies < 1) {
+                    skipped.increment();
+                } else if (books.add(new Book(fields[0].trim(), fields[1].trim(), fields[2].trim(), copies))) {
+                    added.increment();
+                } else {
+                    skipped.increment();
+                }
+            });
+            checkpoint();
+            copy = copyState();
+        } finally {
+            mutations.writeLock().unlock();
+        }
+        writeSnapshot(copy);
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        return OperationResult.ok("📥 Imported " + added.sum() + " books (" + skipped.sum() + " rows skipped) in " + millis + " ms");
+    }
+
+    // Publisher files have title,author,isbn[,copies]. Files written by Export CSV (and
+    // books.csv from older versions) have a status column before the copies, as
+    // Book.toCSV writes it; the status itself is ignored.
+    private static int importedCopies(String[] fields) {
+        int column = fields.length > 3 && BookStatus.isLabel(fields[3]) ? 4 : 3;
+        if (fields.length <= column || fields[column].isBlank()) return 1;
+        try {
+            return Integer.parseInt(fields[column].trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    // Writes the current books and transactions to books.csv and transactions.csv.
+    // Archived loans are included, ahead of the ones still in memory.
+    public OperationResult exportCsv() {
+        long start = System.nanoTime();
+        OperationResult result = writeCsv();
+        Metrics.EXPORT_CSV.record(start, result.isSuccess());
+        return result;
+    }
+
+    private OperationResult writeCsv() {
+        List<String> bookLines = new ArrayList<>();
+        List<String> transactionLines = new ArrayList<>();
+        synchronized (archiving) {
+            archive.forEach(t -> transactionLines.add(t.toCSV()));
+        }
+        mutations.writeLock().lock();
+        try {
+            for (Book b : books.all()) bookLines.add(b.toCSV());
+            for (Transaction t : transactions) transactionLines.add(t.toCSV());
+        } finally {
+            mutations.writeLock().unlock();
+        }
+        FileManager.saveData(path(BOOK_FILE), bookLines, Function.identity());
+        FileManager.saveData(path(TRANSACTION_FILE), transactionLines, Function.identity());
+        return OperationResult.ok("📤 Exported " + bookLines.size() + " books and " + transactionLines.size()
+                + " transactions to " + BOOK_FILE + " and " + TRANSACTION_FILE);
+    }
+
+    // Starts shipping the journal to a replica that has applied every record through
+    // afterSeq (-1 if it has nothing). If the journal still holds all the records after
+    // that, only they are sent to sink and no files are returned. Otherwise the replica
+    // is seeded: the returned snapshot and archive files must be sent to it first, and
+    // sink gets the records after the snapshot. Then sink gets every batch as it is written.
+    List<ShippedFile> followJournal(long afterSeq, Consumer<byte[]> sink) throws IOException {
+        if (afterSeq >= 0 && journal.follow(afterSeq, sink)) return List.of();
+        File snapshot = new File(dataDir, SNAPSHOT_FILE);
+        while (true) {
+            if (!snapshot.exists()) compact();
+            List<ShippedFile> files = new ArrayList<>();
+            boolean following = false;
+            try {
+                // Holding `archiving` keeps the archive and snapshot from different archivals apart.
+                synchronized (archiving) {
+                    ShippedFile snap = ShippedFile.open(SNAPSHOT_FILE, snapshot);
+                    files.add(snap);
+                    files.addAll(archive.open(ARCHIVE_DIR));
+                    following = journal.follow(SnapshotReader.seqOf(snap.channel, SNAPSHOT_MAGIC), sink);
+                }
+            } finally {
+                if (!following) ShippedFile.closeAll(files);
+            }
+            // Otherwise a newer snapshot replaced this one and compacted the journal, or the
+            // journal has not been truncated to this snapshot yet: retry.
+            if (following) return files;
+        }
+    }
+
+    void unfollowJournal(Consumer<byte[]> sink) {
+        journal.unfollow(sink);
+    }
+
+    // The last record applied (on a replica) or queued (on a primary).
+    public long journalSeq() {
+        return journal.lastSeq();
+    }
+
+    // The last durable record in this library's journal, which is as far as a replica can be.
+    public long durableSeq() {
+        return journal.durableSeq();
+    }
+
+    // Applies a record shipped from the primary and logs it under the primary's seq,
+    // so a restarted replica resumes from its own snapshot and journal and only asks
+    // for what came after. Records it already has are skipped.
+    void applyReplicated(JournalRecord r) {
+        String[] f = r.getFields();
+        String isbn = switch (r.getOp()) {
+            case "ADD_BOOK" -> f[2];
+            case "ADD_COPIES", "DELETE_BOOK" -> f[0];
+            case "BORROW", "RETURN" -> f[1];
+            default -> ""; // no ISBN: any stripe gives the shared side of `mutations`
+        };
+        Lock lock = lockIsbn(isbn);
+        try {
+            if (journal.appendReplicated(r)) applyRecord(r);
+        } finally {
+            unlock(lock);
+        }
+    }
+
+    private static final class SnapshotCopy {
+        final long number; // copies are numbered in the order they were taken
+        final long seq;
+        final SnapshotWriter body;
+
+        SnapshotCopy(long number, long seq, SnapshotWriter body) {
+            this.number = number;
+            this.seq = seq;
+            this.body = body;
+        }
+    }
+
+    // Encodes the snapshot body in memory. Caller must hold the write side of `mutations`.
+    //   books:        count, then title, author, isbn, copies
+    //   strings:      count, then each username/ISBN used by a transaction, once
+    //   transactions: count, then user id, ISBN id, issue/due epoch-day, return epoch-day + 1
+    //                 (0 = not returned), fine, copy number
+    // Version 1 had a status byte (BookStatus ordinal) instead of copies and no copy numbers.
+    private SnapshotCopy copyState() {
+        SnapshotWriter out = new SnapshotWriter();
+        out.writeVarLong(books.size());
+        for (Book b : books.all()) {
+            out.writeString(b.getTitle());
+            out.writeString(b.getAuthor());
+            out.writeString(b.getIsbn());
+            out.writeVarLong(b.getCopies());
+        }
+
+        Map<String, Integer> ids = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        int count = 0;
+        for (Transaction t : transactions) {
+            if (ids.putIfAbsent(t.getUsername(), ids.size()) == null) strings.add(t.getUsername());
+            if (ids.putIfAbsent(t.getIsbn(), ids.size()) == null) strings.add(t.getIsbn());
+            count++;
+        }
+        out.writeVarLong(strings.size());
+        for (String str : strings) out.writeString(str);
+
+        out.writeVarLong(count);
+        for (Transaction t : transactions) {
+            out.writeVarLong(ids.get(t.getUsername()));
+            out.writeVarLong(ids.get(t.getIsbn()));
+            out.writeVarLong(t.getIssueDay());
+            out.writeVarLong(t.getDueDay());
+            out.writeVarLong(t.isReturned() ? t.getReturnDay() + 1L : 0);
+            out.writeVarLong(t.getFine());
+            out.writeVarLong(t.getCopy());
+        }
+        return new SnapshotCopy(copiesTaken++, journal.lastSeq(), out);
+    }
+
+    // Copies taken concurrently (e.g. compaction and bulk import) can reach here in
+    // either order; one taken before the snapshot already on disk is dropped. The
+    // journal seq cannot order them: an import changes state without a record.
+    private void writeSnapshot(SnapshotCopy copy) {
+        synchronized (snapshotting) {
+            if (copy.number < lastCopyWritten) return;
+            try {
+                copy.body.commit(new File(dataDir, SNAPSHOT_FILE), SNAPSHOT_MAGIC, SNAPSHOT_VERSION, copy.seq);
+                lastCopyWritten = copy.number;
+                journal.truncateThrough(copy.seq);
+            } catch (IOException e) {
+                System.err.println("⚠️ Error writing snapshot: " + SNAPSHOT_FILE);
+            }
+        }
+    }
+
+    private long loadSnapshot(File file) {
+        try (SnapshotReader in = new SnapshotReader(file, SNAPSHOT_MAGIC)) {
+            int version = in.getVersion();
+            if (version < 1 || version > SNAPSHOT_VERSION) throw new IOException("Unsupported snapshot version " + version);
+            long bookCount = in.readVarLong();
+            for (long i = 0; i < bookCount; i++) {
+                String title = in.readString();
+                String author = in.readString();
+                String isbn = in.readString();
+                int copies = 1;
+                if (version >= 2) copies = in.readVarInt();
+                // Version 1 status: code 2 (status text) only occurs in snapshots written
+                // before BookStatus existed. Open loans decide availability now.
+                else if (in.readByte() == 2) in.readString();
+                books.add(new Book(title, author, isbn, copies));
+            }
+
+            String[] strings = new String[in.readVarInt()];
+            for (int i = 0; i < strings.length; i++) strings[i] = in.readString();
+
+            // Snapshot string ids are mapped to symbol ids once per distinct string.
+            int[] userIds = new int[strings.length];
+            int[] isbnIds = new int[strings.length];
+            Arrays.fill(userIds, -1);
+            Arrays.fill(isbnIds, -1);
+            long count = in.readVarLong();
+            for (long i = 0; i < count; i++) {
+                int user = in.readVarInt();
+                int isbn = in.readVarInt();
+                if (userIds[user] < 0) userIds[user] = SymbolTable.USERS.id(strings[user]);
+                if (isbnIds[isbn] < 0) isbnIds[isbn] = SymbolTable.ISBNS.id(strings[isbn]);
+                int issued = (int) in.readVarLong();
+                int due = (int) in.readVarLong();
+                long returned = in.readVarLong();
+                long fine = in.readVarLong();
+                int copy = version >= 2 ? in.readVarInt() : 1;
+                transactions.add(new Transaction(userIds[user], isbnIds[isbn], issued, due,
+                        returned == 0 ? Transaction.NOT_RETURNED : (int) (returned - 1), fine, copy));
+            }
+            return in.getSeq();
+        } catch (IOException e) {
+            // Starting from a partial snapshot would silently lose data.
+            throw new UncheckedIOException("Cannot load library snapshot " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    private long loadCsv() {
+        long seq = FileManager.recoverSnapshot(path(CSV_SNAPSHOT_FILE), path(BOOK_FILE), path(TRANSACTION_FILE));
+        FileManager.forEachRecordParallel(path(BOOK_FILE), fields -> {
+            Book b = Book.fromFields(fields);
+            if (b != null) books.add(b);
+        });
+        FileManager.forEachRecord(path(TRANSACTION_FILE), fields -> {
+            Transaction t = Transaction.fromFields(fields);
+            if (t != null) transactions.add(t);
+        });
+        return seq;
+    }
+
+    // A snapshot (or CSV export) written before an archival finished can still hold
+    // loans the archive now owns. They are dropped here and taken out of the totals,
+    // which count them from the archive instead.
+    private void dropArchived() {
+        List<Transaction> dropped = new ArrayList<>();
+        transactions.removeIf(t -> archive.covers(t) && dropped.add(t));
+        if (dropped.isEmpty()) return;
+        loans.forget(archive::covers);
+        for (Transaction t : dropped) {
+            borrowCounts.add(t.getIsbn(), -1);
+            userFines.add(t.getUsername(), -t.getFine());
+        }
+    }
+
+    private String path(String name) {
+        return new File(dataDir, name).getPath();
+    }
+
+    private Lock lockIsbn(String isbn) {
+        Lock lock = stripes[(isbn.hashCode() & 0x7fffffff) % stripes.length];
+        mutations.readLock().lock();
+        lock.lock();
+        return lock;
+    }
+
+    private void unlock(Lock lock) {
+        lock.unlock();
+        mutations.readLock().unlock();
+    }
+
+    // Returns once the record is durable (see Durability); false if it could not be written.
+    private boolean record(String op, String... fields) {
+        return journal.await(journal.append(op, fields));
+    }
+
+    // Journals a marker just before the snapshot that saves a change made without
+    // journal records (bulk import, archival). Replicas cannot replay such a change:
+    // on reaching the marker they are seeded again, from a snapshot that covers both
+    // the marker and the change. Caller must hold the write side of `mutations`.
+    private void checkpoint() {
+        record("CHECKPOINT");
+    }
+
+    private OperationResult readOnly() {
+        return OperationResult.failed("❌ This is a read-only replica. Make changes on the primary (" + primary + ").");
+    }
+
+    // Replays one journal record. Dates and fines come from the record, not from
+    // today, so the rebuilt state matches what the original call produced.
+    private void applyRecord(JournalRecord r) {
+        String[] f = r.getFields();
+        switch (r.getOp()) {
+            // Records from before copies existed carry no copy count or number: one copy, copy 1.
+            case "ADD_BOOK" -> books.add(new Book(f[0], f[1], f[2], f.length > 3 ? Integer.parseInt(f[3]) : 1));
+            case "ADD_COPIES" -> {
+                Book book = findBook(f[0]);
+                if (book != null) books.addCopies(book, Integer.parseInt(f[1]));
+            }
+            case "DELETE_BOOK" -> books.remove(f[0]);
+            case "BORROW" -> {
+                Book book = findBook(f[1]);
+                if (book != null) {
+                    applyBorrow(book, f[0], EpochDays.parse(f[2]), EpochDays.parse(f[3]), f.length > 4 ? Integer.parseInt(f[4]) : 1);
+                }
+            }
+            case "RETURN" -> {
+                Book book = findBook(f[1]);
+                Transaction t = findOpenLoan(f[1], f[0]);
+                if (book != null && t != null) applyReturn(book, t, EpochDays.parse(f[2]), Long.parseLong(f[3]));
+            }
+            case "CHECKPOINT" -> {
+                // Nothing to replay: the snapshot taken right after it holds the change.
+            }
+            default -> System.err.println("⚠️ Unknown journal record: " + r.getOp());
+        }
+    }
+
+    private void applyBorrow(Book book, String username, int issueDay, int dueDay, int copy) {
+        books.lend(book, copy);
+        Transaction t = new Transaction(SymbolTable.USERS.id(username), SymbolTable.ISBNS.id(book.getIsbn()),
+                issueDay, dueDay, Transaction.NOT_RETURNED, 0, copy);
+        transactions.add(t);
+        loans.add(t);
+        trackColumns(borrowedSinceColumns, t);
+        borrowCounts.add(t.getIsbn(), 1);
+        userFines.add(username, 0);
+    }
+
+    // The loan may already carry a fine accrued while it was overdue; only the
+    // difference is added to the user's total.
+    private void applyReturn(Book book, Transaction t, int returnDay, long fine) {
+        books.giveBack(book, t.getCopy());
+        t.setReturnDay(returnDay);
+        userFines.add(t.getUsername(), fine - t.getFine());
+        t.setFine(fine);
+        loans.closed(t);
+        trackColumns(returnedSinceColumns, t);
+    }
+
+    private Book findBook(String isbn) {
+        return books.get(isbn);
+    }
+
+    private Transaction findOpenLoan(String isbn, String username) {
+        return loans.openLoan(username, isbn);
+    }
+}
@@ -0,0 +1,265 @@
+package library;
+
+import java.io.*;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.function.Function;
+
+public class LibraryManagementSystem {
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("--server")) {
+            int port = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+            Metrics.registerMBean();
+            Library library = new Library();
+            UserManager userManager = new UserManager();
+            LibraryServer server = new LibraryServer(library, userManager, port);
+            // Flushes journal records still waiting for their interval fsync.
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                library.close();
+                userManager.close();
+            }));
+            server.start();
+            System.out.println("🌐 Server listening on http://localhost:" + server.getPort());
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--primary")) {
+            int port = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+            int replicationPort = args.length > 2 ? Integer.parseInt(args[2]) : 9090;
+            Metrics.registerMBean();
+            Library library = new Library();
+            UserManager userManager = new UserManager();
+            ReplicationPrimary primary = new ReplicationPrimary(library, userManager, replicationPort);
+            LibraryServer server = new LibraryServer(() -> library, userManager, port, primary);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                primary.stop();
+                library.close();
+                userManager.close();
+            }));
+            primary.start();
+            server.start();
+            System.out.println("🌐 Server listening on http://localhost:" + server.getPort());
+            System.out.println("🔁 Replicas can follow on port " + primary.getPort());
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--replica")) {
+            if (args.length < 2) {
+                System.out.println("Usage: --replica <primary host:port> [http port] [data dir]");
+                return;
+            }
+            String[] primaryAddress = args[1].split(":");
+            int port = args.length > 2 ? Integer.parseInt(args[2]) : 8081;
+            File dataDir = new File(args.length > 3 ? args[3] : "replica-" + port);
+            Metrics.registerMBean();
+            ReplicaClient replica = new ReplicaClient(primaryAddress[0], Integer.parseInt(primaryAddress[1]), dataDir);
+            replica.start();
+            if (replica.library() == null) System.out.println("⏳ Waiting for the first copy from the primary at " + args[1] + "...");
+            replica.awaitLibrary();
+            LibraryServer server = new LibraryServer(replica::library, replica.users(), port, replica);
+            Runtime.getRuntime().addShutdownHook(new Thread(replica::stop));
+            server.start();
+            System.out.println("🌐 Read-only replica listening on http://localhost:" + server.getPort());
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--loadgen")) {
+            String url = args.length > 1 ? args[1] : "http://localhost:8080";
+            int clients = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+            int requests = args.length > 3 ? Integer.parseInt(args[3]) : 100;
+            LoadGenerator.run(url, clients, requests, "admin", "admin123");
+            return;
+        }
+
+        Metrics.registerMBean();
+        Scanner sc = new Scanner(System.in);
+        Library library = new Library();
+        UserManager userManager = new UserManager();
+
+        User loggedInUser = null;
+
+        while (loggedInUser == null) {
+            System.out.println("\n===== Welcome to Library =====");
+            System.out.println("1. Login");
+            System.out.println("2. Register");
+            System.out.println("3. Exit");
+            System.out.print("👉 Choice: ");
+
+            try {
+                int opt = sc.nextInt();
+                sc.nextLine(); // Consume newline
+
+                if (opt == 1) {
+                    System.out.print("👤 Username: ");
+                    String u = sc.nextLine();
+                    System.out.print("🔑 Password: ");
+                    String p = sc.nextLine();
+                    loggedInUser = userManager.login(u, p);
+                    if (loggedInUser == null) System.out.println("❌ Invalid username or password!");
+                    else System.out.println("✅ Welcome " + loggedInUser.getUsername() + " (" + loggedInUser.getRole() + ")");
+                } else if (opt == 2) {
+                    System.out.print("👤 New Username: ");
+                    String u = sc.nextLine();
+                    if (userManager.userExists(u)) { System.out.println("⚠️ Username exists!"); continue; }
+                    System.out.print("🔑 Password: ");
+                    String p1 = sc.nextLine();
+                    System.out.print("🔑 Confirm Password: ");
+                    String p2 = sc.nextLine();
+                    if (!p1.equals(p2)) { System.out.println("❌ Passwords mismatch!"); continue; }
+                    if (userManager.addUser(u, p1, "User")) System.out.println("✅ Registration successful!");
+                    else System.out.println("⚠️ Username exists!");
+                } else if (opt == 3) {
+                    System.out.println("👋 Bye!");
+                    library.close();
+                    userManager.close();
+                    return;
+                }
+                else System.out.println("⚠️ Invalid choice!");
+            } catch (InputMismatchException e) {
+                System.out.println("❌ Invalid input! Please enter a number.");
+                sc.nextLine(); // Clear the invalid input from the scanner
+            }
+        }
+
+        // Simplified menu logic
+        int ch;
+        do {
+            System.out.println("\n===== Menu =====");
+            if (loggedInUser.getRole().equalsIgnoreCase("Admin")) {
+                System.out.println("1. Add Book");
+                System.out.println("2. Delete Book");
+                System.out.println("3. Generate Reports");
+                System.out.println("10. Bulk Import Catalog");
+                System.out.println("11. Export CSV");
+                System.out.println("12. Metrics");
+                System.out.println("13. Overdue & Outstanding Fines");
+                System.out.println("14. Circulation Analytics");
+            }
+            System.out.println("4. Display All Books");
+            System.out.println("5. Search Book");
+            System.out.println("6. Borrow Book");
+            System.out.println("7. Return Book");
+            System.out.println("8. View My History");
+            System.out.println("9. Exit");
+
+            System.out.print("👉 Choice: ");
+            try {
+                ch = sc.nextInt();
+                sc.nextLine(); // Consume newline
+
+                switch (ch) {
+                    case 1 -> {
+                        if (!loggedInUser.getRole().equalsIgnoreCase("Admin")) { System.out.println("❌ Access denied."); break; }
+                        System.out.print("Title: "); String t = sc.nextLine();
+                        System.out.print("Author: "); String a = sc.nextLine();
+                        System.out.print("ISBN: "); String i = sc.nextLine();
+                        System.out.print("Copies (Enter for 1): "); String c = sc.nextLine().trim();
+                        try {
+                            library.addBook(new Book(t, a, i, c.isEmpty() ? 1 : Integer.parseInt(c)));
+                        } catch (NumberFormatException e) {
+                            System.out.println("❌ Copies must be a number.");
+                        }
+                    }
+                    case 2 -> {
+                        if (!loggedInUser.getRole().equalsIgnoreCase("Admin")) { System.out.println("❌ Access denied."); break; }
+                        System.out.print("ISBN: "); library.deleteBook(sc.nextLine());
+                    }
+                    case 3 -> {
+                        if (!loggedInUser.getRole().equalsIgnoreCase("Admin")) { System.out.println("❌ Access denied."); break; }
+                        library.generateReports();
+                    }
+                    case 10 -> {
+                        if (!loggedInUser.getRole().equalsIgnoreCase("Admin")) { System.out.println("❌ Access denied."); break; }
+                        System.out.print("CSV file (title,author,isbn[,copies]): "); System.out.println(library.bulkImport(sc.nextLine().trim()));
+                    }
+                    case 11 -> {
+                        if (!loggedInUser.getRole().equalsIgnoreCase("Admin")) { System.out.println("❌ Access denied."); break; }
+                        System.out.println(library.exportCsv());
+                    }
+                    case 12 -> {
+                        if (!loggedInUser.getRole().equalsIgnoreCase("Admin")) { System.out.println("❌ Access denied."); break; }
+                        System.out.println("\n===== 📈 Metrics =====");
+                        for (String line : Metrics.report()) System.out.println(line);
+                    }
+                    case 13 -> {
+                        if (!loggedInUser.getRole().equalsIgnoreCase("Admin")) { System.out.println("❌ Access denied."); break; }
+                        library.printOutstandingFines();
+                    }
+                    case 14 -> {
+                        if (!loggedInUser.getRole().equalsIgnoreCase("Admin")) { System.out.println("❌ Access denied."); break; }
+                        CirculationStats stats;
+                        try {
+                            System.out.print("From (dd-MM-yyyy): "); int from = EpochDays.parse(sc.nextLine().trim());
+                            System.out.print("To (dd-MM-yyyy): "); int to = EpochDays.parse(sc.nextLine().trim());
+                            System.out.print("Per day, week or month: ");
+                            stats = library.circulation(from, to, CirculationStats.Period.of(sc.nextLine()));
+                        } catch (DateTimeParseException e) {
+                            System.out.println("❌ Dates must look like 31-12-2024."); break;
+                        } catch (IllegalArgumentException e) {
+                            System.out.println("❌ " + e.getMessage()); break;
+                        }
+                        System.out.println("\n===== 📅 Circulation =====");
+                        for (String line : library.circulationLines(stats)) System.out.println(line);
+                        System.out.print("📤 Export as CSV? (y/n): ");
+                        if (sc.nextLine().trim().equalsIgnoreCase("y")) System.out.println(library.exportCirculation(stats));
+                    }
+                    case 4 -> {
+                        BookOrder order = askOrder(sc, BookOrder.TITLE);
+                        browse(sc, cursor -> library.displayBooks(order, cursor));
+                    }
+                    case 5 -> {
+                        System.out.print("Keyword: "); String keyword = sc.nextLine();
+                        BookOrder order = askOrder(sc, BookOrder.RELEVANCE);
+                        browse(sc, cursor -> library.searchBook(keyword, order, cursor));
+                    }
+                    case 6 -> { System.out.print("ISBN: "); library.borrowBook(sc.nextLine(), loggedInUser.getUsername()); }
+                    case 7 -> { System.out.print("ISBN: "); library.returnBook(sc.nextLine(), loggedInUser.getUsername()); }
+                    case 8 -> {
+                        int page = 0;
+                        while (library.viewUserHistory(loggedInUser.getUsername(), page)) {
+                            System.out.print("➡️ Press Enter for older records, or q to stop: ");
+                            if (sc.nextLine().trim().equalsIgnoreCase("q")) break;
+                            page++;
+                        }
+                    }
+                    case 9 -> System.out.println("👋 Bye!");
+                    default -> System.out.println("⚠️ Invalid choice!");
+                }
+            } catch (InputMismatchException e) {
+                System.out.println("❌ Invalid input! Please enter a number.");
+                ch = 0; // Reset choice to loop again
+                sc.nextLine(); // Clear the invalid input
+            }
+        } while (ch != 9);
+
+        library.close();
+        userManager.close();
+        sc.close();
+    }
+
+    // Relevance is only offered when it is the default, i.e. for search results.
+    private static BookOrder askOrder(Scanner sc, BookOrder byDefault) {
+        String name = byDefault.name().toLowerCase(Locale.ROOT);
+        System.out.print("Sort by " + (byDefault == BookOrder.RELEVANCE ? "relevance, " : "")
+                + "title, author or isbn (Enter for " + name + "): ");
+        String order = sc.nextLine();
+        if (order.isBlank()) return byDefault;
+        try {
+            BookOrder chosen = BookOrder.of(order);
+            if (chosen != BookOrder.RELEVANCE || byDefault == BookOrder.RELEVANCE) return chosen;
+        } catch (IllegalArgumentException e) {
+            // reported below
+        }
+        System.out.println("⚠️ Unknown order, sorting by " + name + ".");
+        return byDefault;
+    }
+
+    // Shows the first page, then moves between pages until the user stops.
+    private static void browse(Scanner sc, Function<String, BookPage> show) {
+        BookPage page = show.apply(null);
+        while (page.hasNext() || page.hasPrevious()) {
+            System.out.print("➡️ n = next page, p = previous page, Enter to stop: ");
+            String choice = sc.nextLine().trim();
+            if (choice.equalsIgnoreCase("n") && page.hasNext()) page = show.apply(page.getNext());
+            else if (choice.equalsIgnoreCase("p") && page.hasPrevious()) page = show.apply(page.getPrevious());
+            else if (!choice.equalsIgnoreCase("n") && !choice.equalsIgnoreCase("p")) break;
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package library;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+// HTTP/JSON front end for the console menu's operations, bound to localhost.
+// Each request runs on its own virtual thread against the shared Library (on a
+// read replica, whichever copy is current).
+// Parameters come from the query string or a form-encoded POST body, and every
+// endpoint except /login needs "Authorization: Bearer <token>".
+class LibraryServer {
+    private static final int DEFAULT_LIST_LIMIT = 100;
+    private static final int MAX_LIST_LIMIT = 1000;
+
+    private interface Handler {
+        Reply handle(Map<String, String> params, User user, String token);
+    }
+
+    private record Reply(int status, String json) {}
+
+    // A replica swaps in a new Library whenever it is seeded again, so it is looked up per request.
+    private final Supplier<Library> library;
+    private final UserManager userManager;
+    private final ReplicationStatus replication;
+    private final HttpServer server;
+
+    public LibraryServer(Library library, UserManager userManager, int port) throws IOException {
+        this(() -> library, userManager, port, null);
+    }
+
+    public LibraryServer(Supplier<Library> library, UserManager userManager, int port, ReplicationStatus replication) throws IOException {
+        this.library = library;
+        this.userManager = userManager;
+        this.replication = replication;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        route("/login", "POST", false, false, this::login);
+        route("/logout", "POST", true, false, (p, u, token) -> {
+            userManager.endSession(token);
+            return new Reply(200, "{\"success\":true}");
+        });
+        route("/books", "GET", true, false, this::listBooks);
+        route("/search", "GET", true, false, this::search);
+        route("/borrow", "POST", true, false, (p, u, t) -> result(library.get().checkOut(required(p, "isbn"), u.getUsername())));
+        route("/return", "POST", true, false, (p, u, t) -> result(library.get().checkIn(required(p, "isbn"), u.getUsername())));
+        route("/history", "GET", true, false, this::history);
+        route("/books/add", "POST", true, true,
+                (p, u, t) -> result(library.get().add(new Book(required(p, "title"), required(p, "author"), required(p, "isbn"),
+                        intParam(p, "copies", 1)))));
+        route("/books/delete", "POST", true, true, (p, u, t) -> result(library.get().remove(required(p, "isbn"))));
+        route("/books/import", "POST", true, true, (p, u, t) -> result(library.get().bulkImport(required(p, "file"))));
+        route("/users/add", "POST", true, true, this::addUser);
+        route("/reports", "GET", true, true, (p, u, t) -> ok("{\"lines\":" + strings(library.get().reportLines()) + "}"));
+        route("/reports/circulation", "GET", true, true, this::circulation);
+        route("/reports/fines", "GET", true, true, (p, u, t) -> ok("{\"lines\":" + strings(library.get().outstandingFineLines()) + "}"));
+        route("/replication", "GET", true, true, (p, u, t) -> replication == null ? error(404, "Replication is not enabled.")
+                : ok("{\"lines\":" + strings(replication.statusLines()) + "}"));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(1);
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private Reply login(Map<String, String> params, User ignored, String ignoredToken) {
+        String username = required(params, "username");
+        String token = userManager.issueToken(username, required(params, "password"));
+        if (token == null) return error(401, "❌ Invalid username or password!");
+        User user = userManager.userForToken(token);
+        return ok("{\"token\":" + quote(token) + ",\"username\":" + quote(user.getUsername())
+                + ",\"role\":" + quote(user.getRole()) + "}");
+    }
+
+    // role defaults to User. A replica has no accounts of its own to add to.
+    private Reply addUser(Map<String, String> params, User user, String token) {
+        if (library.get().isReplica()) return result(OperationResult.failed("❌ This is a read-only replica. Add users on the primary."));
+        String username = required(params, "username");
+        if (userManager.addUser(username, required(params, "password"), params.getOrDefault("role", "User"))) {
+            return result(OperationResult.ok("✅ Registration successful!"));
+        }
+        return result(OperationResult.failed("⚠️ Username exists!"));
+    }
+
+    // order=title|author|isbn (default title), limit, and cursor=<next or previous from the last reply>.
+    // Search takes the same parameters plus q, and also order=relevance (its default).
+    private Reply listBooks(Map<String, String> params, User user, String token) {
+        Library lib = library.get();
+        BookPage page = lib.listBooks(order(params, BookOrder.TITLE), params.get("cursor"), limit(params));
+        return ok("{\"total\":" + lib.getBooks().size() + "," + page(page) + "}");
+    }
+
+    private Reply search(Map<String, String> params, User user, String token) {
+        BookOrder order = order(params, BookOrder.RELEVANCE);
+        return ok("{" + page(library.get().searchBooks(required(params, "q"), order, params.get("cursor"), limit(params))) + "}");
+    }
+
+    private static String page(BookPage page) {
+        return "\"next\":" + (page.hasNext() ? quote(page.getNext()) : "null")
+                + ",\"previous\":" + (page.hasPrevious() ? quote(page.getPrevious()) : "null")
+                + ",\"books\":" + books(page.stream());
+    }
+
+    private static BookOrder order(Map<String, String> params, BookOrder byDefault) {
+        String order = params.get("order");
+        return order == null ? byDefault : BookOrder.of(order);
+    }
+
+    private static int limit(Map<String, String> params) {
+        return Math.max(1, Math.min(intParam(params, "limit", DEFAULT_LIST_LIMIT), MAX_LIST_LIMIT));
+    }
+
+    private Reply history(Map<String, String> params, User user, String token) {
+        int page = Math.max(0, intParam(params, "page", 0));
+        Library lib = library.get();
+        StringBuilder sb = new StringBuilder("{\"page\":").append(page)
+                .append(",\"more\":").append(lib.hasMoreHistory(user.getUsername(), page))
+                .append(",\"transactions\":[");
+        List<Transaction> records = lib.getUserHistory(user.getUsername(), page);
+        for (int i = 0; i < records.size(); i++) {
+            Transaction t = records.get(i);
+            if (i > 0) sb.append(',');
+            sb.append("{\"isbn\":").append(quote(t.getIsbn()))
+                    .append(",\"issueDate\":").append(quote(t.getIssueDate()))
+                    .append(",\"dueDate\":").append(quote(t.getDueDate()))
+                    .append(",\"returnDate\":").append(t.getReturnDate() == null ? "null" : quote(t.getReturnDate()))
+                    .append(",\"fine\":").append(t.getFine()).append('}');
+        }
+        return ok(sb.append("]}").toString());
+    }
+
+    private void route(String path, String method, boolean needsLogin, boolean adminOnly, Handler handler) {
+        server.createContext(path, exchange -> {
+            Reply reply;
+            try {
+                String token = bearerToken(exchange);
+                User user = needsLogin ? userManager.userForToken(token) : null;
+                if (!exchange.getRequestMethod().equalsIgnoreCase(method)) reply = error(405, "Use " + method + ".");
+                else if (!exchange.getRequestURI().getPath().equals(path)) reply = error(404, "Not found.");
+                else if (needsLogin && user == null) reply = error(401, "Not logged in.");
+                else if (adminOnly && !user.getRole().equalsIgnoreCase("Admin")) reply = error(403, "❌ Access denied.");
+                else reply = handler.handle(params(exchange), user, token);
+            } catch (IllegalArgumentException e) {
+                reply = error(400, e.getMessage());
+            } catch (RuntimeException e) {
+                System.err.println("⚠️ Error handling " + path + ": " + e);
+                reply = error(500, "Internal error.");
+            }
+            byte[] body = reply.json().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(reply.status(), body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        });
+    }
+
+    private static Map<String, String> params(HttpExchange exchange) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        parseForm(exchange.getRequestURI().getRawQuery(), params);
+        try (InputStream in = exchange.getRequestBody()) {
+            parseForm(new String(in.readAllBytes(), StandardCharsets.UTF_8), params);
+        }
+        return params;
+    }
+
+    private static void parseForm(String form, Map<String, String> params) {
+        if (form == null || form.isEmpty()) return;
+        for (String pair : form.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq <= 0) continue;
+            params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+    }
+
+    private static String bearerToken(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        return header != null && header.startsWith("Bearer ") ? header.substring(7).trim() : null;
+    }
+
+    // from/to are dd-MM-yyyy (default: the last 30 days), period is day, week or month (default day).
+    private Reply circulation(Map<String, String> params, User user, String token) {
+        int to = params.containsKey("to") ? dayParam(params, "to") : EpochDays.today();
+        int from = params.containsKey("from") ? dayParam(params, "from") : to - 29;
+        Library lib = library.get();
+        CirculationStats stats = lib.circulation(from, to, CirculationStats.Period.of(params.getOrDefault("period", "day")));
+        return ok("{\"lines\":" + strings(lib.circulationLines(stats)) + "}");
+    }
+
+    private static int dayParam(Map<String, String> params, String name) {
+        try {
+            return EpochDays.parse(required(params, name));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Not a dd-MM-yyyy date: " + name);
+        }
+    }
+
+    private static String required(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null || value.isBlank()) throw new IllegalArgumentException("Missing parameter: " + name);
+        return value;
+    }
+
+    private static int intParam(Map<String, String> params, String name, int defaultValue) {
+        String value = params.get(name);
+        if (value == null) return defaultValue;
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a number: " + name);
+        }
+    }
+
+    private static Reply ok(String json) {
+        return new Reply(200, json);
+    }
+
+    private static Reply error(int status, String message) {
+        return new Reply(status, "{\"success\":false,\"message\":" + quote(message) + "}");
+    }
+
+    private static Reply result(OperationResult r) {
+        return new Reply(r.isSuccess() ? 200 : 409,
+                "{\"success\":" + r.isSuccess() + ",\"message\":" + quote(r.getMessage()) + "}");
+    }
+
+    private static String books(Stream<Book> books) {
+        StringBuilder sb = new StringBuilder("[");
+        books.forEach(b -> {
+            if (sb.length() > 1) sb.append(',');
+            sb.append("{\"title\":").append(quote(b.getTitle()))
+                    .append(",\"author\":").append(quote(b.getAuthor()))
+                    .append(",\"isbn\":").append(quote(b.getIsbn()))
+                    .append(",\"status\":").append(quote(b.getStatus()))
+                    .append(",\"copies\":").append(b.getCopies())
+                    .append(",\"available\":").append(b.getAvailable()).append('}');
+        });
+        return sb.append(']').toString();
+    }
+
+    private static String strings(List<String> values) {
+        StringBuilder sb = new StringBuilder("[");
+        for (String v : values) {
+            if (sb.length() > 1) sb.append(',');
+            sb.append(quote(v));
+        }
+        return sb.append(']').toString();
+    }
+
+    static String quote(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
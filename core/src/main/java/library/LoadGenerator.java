@@ -0,0 +1,104 @@
+package library;
+
+import java.io.*;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Drives a running server with many concurrent clients, one virtual thread each,
+// and prints throughput and latency percentiles. It logs in as the given admin and
+// first adds a small set of "LOADGEN-n" books to borrow and return.
+class LoadGenerator {
+    private static final int BOOKS = 200;
+
+    public static void run(String baseUrl, int clients, int requestsPerClient, String username, String password) throws Exception {
+        HttpClient http = HttpClient.newHttpClient();
+        HttpResponse<String> login = post(http, baseUrl + "/login", null,
+                "username=" + encode(username) + "&password=" + encode(password));
+        Matcher m = Pattern.compile("\"token\":\"([^\"]+)\"").matcher(login.body());
+        if (!m.find()) {
+            System.out.println("❌ Login failed: " + login.body());
+            return;
+        }
+        String token = m.group(1);
+        for (int i = 0; i < BOOKS; i++) {
+            post(http, baseUrl + "/books/add", token, "title=" + encode("Load Test Volume " + i)
+                    + "&author=" + encode("Generator " + (i % 10)) + "&isbn=LOADGEN-" + i);
+        }
+
+        long[] latencies = new long[clients * requestsPerClient];
+        AtomicInteger errors = new AtomicInteger();
+        AtomicReference<String> firstError = new AtomicReference<>();
+        long start = System.nanoTime();
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < clients; c++) {
+                int client = c;
+                pool.submit(() -> {
+                    String isbn = "LOADGEN-" + (client % BOOKS);
+                    for (int r = 0; r < requestsPerClient; r++) {
+                        long t0 = System.nanoTime();
+                        try {
+                            HttpResponse<String> response = switch (r % 10) {
+                                case 0 -> post(http, baseUrl + "/borrow", token, "isbn=" + isbn);
+                                case 1 -> post(http, baseUrl + "/return", token, "isbn=" + isbn);
+                                case 2 -> get(http, baseUrl + "/history", token);
+                                case 3 -> get(http, baseUrl + "/books?limit=20", token);
+                                default -> get(http, baseUrl + "/search?q=" + encode("volume " + (r % BOOKS)), token);
+                            };
+                            // 409 is a business outcome (e.g. already borrowed by another client), not a failure.
+                            if (response.statusCode() != 200 && response.statusCode() != 409) {
+                                errors.incrementAndGet();
+                                firstError.compareAndSet(null, "HTTP " + response.statusCode() + " " + response.body());
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                            firstError.compareAndSet(null, e.toString());
+                        }
+                        latencies[client * requestsPerClient + r] = System.nanoTime() - t0;
+                    }
+                });
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        Arrays.sort(latencies);
+        System.out.printf("Requests: %d from %d clients in %.2fs (%.0f req/s), errors: %d%n",
+                latencies.length, clients, seconds, latencies.length / seconds, errors.get());
+        System.out.printf("Latency ms: p50=%.2f p99=%.2f p999=%.2f max=%.2f%n",
+                percentile(latencies, 0.50), percentile(latencies, 0.99), percentile(latencies, 0.999),
+                latencies[latencies.length - 1] / 1e6);
+        if (firstError.get() != null) System.out.println("First error: " + firstError.get());
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int i = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+        return sorted[Math.max(0, i)] / 1e6;
+    }
+
+    private static HttpResponse<String> get(HttpClient http, String url, String token) throws IOException, InterruptedException {
+        return http.send(HttpRequest.newBuilder(URI.create(url)).header("Authorization", "Bearer " + token).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static HttpResponse<String> post(HttpClient http, String url, String token, String form) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(form));
+        if (token != null) request.header("Authorization", "Bearer " + token);
+        return http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static String encode(String s) {
+        return URLEncoder.encode(s, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,175 @@
+package library;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+// Closed loans that have aged out of memory, kept as CSV segments with one file per
+// month of return (loans-YYYY-MM.csv). The manifest records the watermark (every
+// closed loan returned before that epoch day lives here) and how many bytes of each
+// segment are committed. Bytes past that are left by an archival that never
+// finished; they are cut off on open and before the next append.
+class LoanArchive {
+    private static final String MANIFEST = "manifest.csv";
+
+    private final File dir;
+    private final TreeMap<String, Long> committed = new TreeMap<>(); // oldest segment first
+    private final ConcurrentHashMap<String, Integer> perUser = new ConcurrentHashMap<>();
+    private volatile int watermark = Integer.MIN_VALUE;
+
+    public LoanArchive(File dir) {
+        this.dir = dir;
+        FileManager.forEachRecord(new File(dir, MANIFEST).getPath(), f -> {
+            if (f.length < 2) return;
+            if (f[0].equals("watermark")) watermark = Integer.parseInt(f[1]);
+            else committed.put(f[0], Long.parseLong(f[1]));
+        });
+        File[] files = dir.listFiles((d, name) -> name.startsWith("loans-"));
+        if (files == null) return;
+        for (File file : files) {
+            try {
+                truncate(file, committed.getOrDefault(file.getName(), 0L));
+            } catch (IOException e) {
+                System.err.println("⚠️ Error repairing archive segment: " + file);
+            }
+        }
+    }
+
+    public int watermark() {
+        return watermark;
+    }
+
+    public boolean covers(Transaction t) {
+        return t.isReturned() && t.getReturnDay() < watermark;
+    }
+
+    public int count(String username) {
+        return perUser.getOrDefault(username, 0);
+    }
+
+    // Streams every archived loan to the consumer, oldest segment first, and counts
+    // each user's loans for history paging. Called once at startup.
+    public synchronized void load(Consumer<Transaction> consumer) {
+        perUser.clear();
+        forEach(t -> {
+            perUser.merge(t.getUsername(), 1, Integer::sum);
+            consumer.accept(t);
+        });
+    }
+
+    public synchronized void forEach(Consumer<Transaction> consumer) {
+        for (String name : committed.keySet()) {
+            FileManager.forEachRecord(new File(dir, name).getPath(), fields -> {
+                Transaction t = Transaction.fromFields(fields);
+                if (t != null) consumer.accept(t);
+            });
+        }
+    }
+
+    // The user's archived loans, newest first, after skipping `skip` of them.
+    // Segments are read newest first and reading stops once the page is full.
+    public synchronized List<Transaction> history(String username, int skip, int limit) {
+        List<Transaction> page = new ArrayList<>(limit);
+        for (String name : committed.descendingKeySet()) {
+            if (page.size() == limit) break;
+            List<Transaction> mine = new ArrayList<>();
+            FileManager.forEachRecord(new File(dir, name).getPath(), fields -> {
+                if (fields.length > 0 && fields[0].equals(username)) {
+                    Transaction t = Transaction.fromFields(fields);
+                    if (t != null) mine.add(t);
+                }
+            });
+            for (int i = mine.size() - 1; i >= 0 && page.size() < limit; i--) {
+                if (skip > 0) skip--;
+                else page.add(mine.get(i));
+            }
+        }
+        return page;
+    }
+
+    // Opens the manifest and every committed segment for copying to a replica. Later
+    // archivals only append past the committed lengths or replace the manifest, so
+    // the copy stays the archive as of this call. The caller closes the files.
+    public synchronized List<ShippedFile> open(String prefix) throws IOException {
+        List<ShippedFile> files = new ArrayList<>();
+        try {
+            File manifest = new File(dir, MANIFEST);
+            if (manifest.exists()) files.add(ShippedFile.open(prefix + "/" + MANIFEST, manifest));
+            for (Map.Entry<String, Long> e : committed.entrySet()) {
+                files.add(ShippedFile.open(prefix + "/" + e.getKey(), new File(dir, e.getKey()), e.getValue()));
+            }
+        } catch (IOException e) {
+            ShippedFile.closeAll(files);
+            throw e;
+        }
+        return files;
+    }
+
+    // Appends the loans to their month segments and forces them to disk, then commits
+    // the new lengths and watermark by replacing the manifest.
+    public synchronized void append(Collection<Transaction> loans, int newWatermark) throws IOException {
+        Map<String, List<Transaction>> bySegment = new TreeMap<>();
+        for (Transaction t : loans) {
+            bySegment.computeIfAbsent(segmentName(t.getReturnDay()), k -> new ArrayList<>()).add(t);
+        }
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+        TreeMap<String, Long> lengths = new TreeMap<>(committed);
+        for (Map.Entry<String, List<Transaction>> e : bySegment.entrySet()) {
+            File file = new File(dir, e.getKey());
+            long start = committed.getOrDefault(e.getKey(), 0L);
+            truncate(file, start);
+            try (FileOutputStream fos = new FileOutputStream(file, true);
+                 BufferedWriter w = new BufferedWriter(new OutputStreamWriter(fos, StandardCharsets.UTF_8))) {
+                for (Transaction t : e.getValue()) {
+                    w.write(t.toCSV());
+                    w.write('\n');
+                }
+                w.flush();
+                fos.getFD().sync();
+                lengths.put(e.getKey(), fos.getChannel().size());
+            }
+        }
+        writeManifest(lengths, newWatermark);
+        committed.clear();
+        committed.putAll(lengths);
+        watermark = newWatermark;
+        for (Transaction t : loans) perUser.merge(t.getUsername(), 1, Integer::sum);
+    }
+
+    private void writeManifest(Map<String, Long> lengths, int newWatermark) throws IOException {
+        File tmp = new File(dir, MANIFEST + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp);
+             BufferedWriter w = new BufferedWriter(new OutputStreamWriter(fos, StandardCharsets.UTF_8))) {
+            w.write(Csv.format("watermark", Integer.toString(newWatermark)));
+            w.newLine();
+            for (Map.Entry<String, Long> e : lengths.entrySet()) {
+                w.write(Csv.format(e.getKey(), Long.toString(e.getValue())));
+                w.newLine();
+            }
+            w.flush();
+            fos.getFD().sync();
+        }
+        Files.move(tmp.toPath(), new File(dir, MANIFEST).toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void truncate(File file, long length) throws IOException {
+        if (!file.exists() || file.length() <= length) return;
+        try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            ch.truncate(length);
+            ch.force(true);
+        }
+    }
+
+    private static String segmentName(int epochDay) {
+        return "loans-" + YearMonth.from(LocalDate.ofEpochDay(epochDay)) + ".csv";
+    }
+}
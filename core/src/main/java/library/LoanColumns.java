@@ -0,0 +1,82 @@
+package library;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+// Loans copied column by column into primitive arrays for analytics scans over
+// millions of rows: no Transaction objects, date strings or boxing on the hot path.
+class LoanColumns {
+    final int size;
+    final int[] isbnIds;
+    final int[] issueDays;
+    final int[] dueDays;
+    final int[] returnDays; // Transaction.NOT_RETURNED while the loan is open
+    final int isbnBound;    // every isbn id is below this
+
+    LoanColumns(int[] isbnIds, int[] issueDays, int[] dueDays, int[] returnDays, int size) {
+        this(isbnIds, issueDays, dueDays, returnDays, size, bound(isbnIds, size));
+    }
+
+    private LoanColumns(int[] isbnIds, int[] issueDays, int[] dueDays, int[] returnDays, int size, int isbnBound) {
+        this.size = size;
+        this.isbnIds = isbnIds;
+        this.issueDays = issueDays;
+        this.dueDays = dueDays;
+        this.returnDays = returnDays;
+        this.isbnBound = isbnBound;
+    }
+
+    private static int bound(int[] isbnIds, int size) {
+        int bound = 0;
+        for (int i = 0; i < size; i++) bound = Math.max(bound, isbnIds[i] + 1);
+        return bound;
+    }
+
+    // Copies whatever the source hands to its consumer, e.g. archive::forEach.
+    static LoanColumns of(Consumer<Consumer<Transaction>> source) {
+        Builder b = new Builder();
+        source.accept(b::append);
+        return b.view();
+    }
+
+    // Columns that grow row by row: a borrow appends a row, a return fills in the
+    // return day of its row. Views share the arrays, so a scan already running may
+    // see a return that lands meanwhile but never a row past its own size.
+    // Not thread-safe; callers serialize append, returned and view.
+    static final class Builder {
+        private int[] isbnIds = new int[1024];
+        private int[] issueDays = new int[1024];
+        private int[] dueDays = new int[1024];
+        private int[] returnDays = new int[1024];
+        private int size;
+        private int isbnBound;
+        // Rows of loans still open, the only ones a return can change.
+        private final Map<Transaction, Integer> openRows = new IdentityHashMap<>();
+
+        void append(Transaction t) {
+            if (size == isbnIds.length) {
+                isbnIds = Arrays.copyOf(isbnIds, size * 2);
+                issueDays = Arrays.copyOf(issueDays, size * 2);
+                dueDays = Arrays.copyOf(dueDays, size * 2);
+                returnDays = Arrays.copyOf(returnDays, size * 2);
+            }
+            int i = size++;
+            isbnIds[i] = t.getIsbnId();
+            issueDays[i] = t.getIssueDay();
+            dueDays[i] = t.getDueDay();
+            returnDays[i] = t.getReturnDay();
+            isbnBound = Math.max(isbnBound, t.getIsbnId() + 1);
+            if (!t.isReturned()) openRows.put(t, i);
+        }
+
+        // A loan appended after it was returned already has its return day.
+        void returned(Transaction t) {
+            Integer row = openRows.remove(t);
+            if (row != null) returnDays[row] = t.getReturnDay();
+        }
+
+        LoanColumns view() {
+            return new LoanColumns(isbnIds, issueDays, dueDays, returnDays, size, isbnBound);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package library;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Predicate;
+
+// Open loans keyed by (username, ISBN) and each user's history in the order the
+// loans were made, so returns and history pages never scan other users' records.
+// Each user's history list is guarded by its own monitor.
+class LoanIndex {
+    private final ConcurrentHashMap<String, Map<String, Transaction>> open = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, ArrayList<Transaction>> history = new ConcurrentHashMap<>();
+    // Open loans in due-date order, so overdue and due-soon queries walk only their result.
+    private final ConcurrentSkipListSet<Transaction> openByDue = new ConcurrentSkipListSet<>(
+            Comparator.comparingInt(Transaction::getDueDay)
+                    .thenComparingInt(Transaction::getIsbnId)
+                    .thenComparingInt(Transaction::getUserId)
+                    .thenComparingInt(Transaction::getCopy));
+
+    public void add(Transaction t) {
+        ArrayList<Transaction> list = history.computeIfAbsent(t.getUsername(), k -> new ArrayList<>());
+        synchronized (list) {
+            list.add(t);
+        }
+        if (!t.isReturned()) {
+            open.compute(t.getUsername(), (k, loans) -> {
+                if (loans == null) loans = new ConcurrentHashMap<>();
+                loans.put(t.getIsbn(), t);
+                return loans;
+            });
+            openByDue.add(t);
+        }
+    }
+
+    public Transaction openLoan(String username, String isbn) {
+        Map<String, Transaction> loans = open.get(username);
+        return loans == null ? null : loans.get(isbn);
+    }
+
+    public void closed(Transaction t) {
+        open.computeIfPresent(t.getUsername(), (k, loans) -> {
+            loans.remove(t.getIsbn(), t);
+            return loans.isEmpty() ? null : loans;
+        });
+        openByDue.remove(t);
+    }
+
+    // Open loans due before the given day, oldest due date first. A live view.
+    public NavigableSet<Transaction> overdue(int asOfDay) {
+        return openByDue.headSet(dueBound(asOfDay), false);
+    }
+
+    // Open loans due on any day from first to last inclusive. A live view.
+    public NavigableSet<Transaction> dueBetween(int firstDay, int lastDay) {
+        return openByDue.subSet(dueBound(firstDay), true, dueBound(lastDay + 1), false);
+    }
+
+    // Sorts before every real loan due on that day.
+    private static Transaction dueBound(int day) {
+        return new Transaction(Integer.MIN_VALUE, Integer.MIN_VALUE, day, day, Transaction.NOT_RETURNED, 0, Integer.MIN_VALUE);
+    }
+
+    // Page 0 holds the most recent loans.
+    public List<Transaction> historyPage(String username, int page, int pageSize) {
+        ArrayList<Transaction> all = history.get(username);
+        if (all == null) return Collections.emptyList();
+        synchronized (all) {
+            int end = all.size() - page * pageSize;
+            int start = Math.max(0, end - pageSize);
+            List<Transaction> result = new ArrayList<>(Math.max(0, end - start));
+            for (int i = end - 1; i >= start; i--) result.add(all.get(i));
+            return result;
+        }
+    }
+
+    public int historySize(String username) {
+        ArrayList<Transaction> all = history.get(username);
+        if (all == null) return 0;
+        synchronized (all) {
+            return all.size();
+        }
+    }
+
+    // Drops the matching loans from every history list. Must not run concurrently
+    // with add(), since a user whose list empties out is removed.
+    public void forget(Predicate<Transaction> archived) {
+        history.values().removeIf(list -> {
+            synchronized (list) {
+                list.removeIf(archived);
+                return list.isEmpty();
+            }
+        });
+    }
+}
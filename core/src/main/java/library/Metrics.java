@@ -0,0 +1,101 @@
+package library;
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Process-wide instrumentation: a latency histogram and failure count per operation,
+// plus plain counters (bytes written, unparseable records). Recording costs two
+// nanoTime calls and an atomic increment, so it is always on. Exposed over JMX as
+// library:type=Metrics and through the admin "Metrics" menu entry.
+final class Metrics {
+    private static final ConcurrentSkipListMap<String, OperationStats> OPERATIONS = new ConcurrentSkipListMap<>();
+    private static final ConcurrentSkipListMap<String, LongAdder> COUNTERS = new ConcurrentSkipListMap<>();
+    private static final long STARTED = System.nanoTime();
+
+    static final OperationStats ADD_BOOK = operation("library.addBook");
+    static final OperationStats DELETE_BOOK = operation("library.deleteBook");
+    static final OperationStats BORROW = operation("library.borrow");
+    static final OperationStats RETURN = operation("library.return");
+    static final OperationStats SEARCH = operation("library.search");
+    static final OperationStats LIST_BOOKS = operation("library.listBooks");
+    static final OperationStats HISTORY = operation("library.history");
+    static final OperationStats REPORTS = operation("library.reports");
+    static final OperationStats COMPACT = operation("library.compact");
+    static final OperationStats ARCHIVE = operation("library.archive");
+    static final OperationStats ACCRUE_FINES = operation("library.accrueFines");
+    static final OperationStats FINES_REPORT = operation("library.finesReport");
+    static final OperationStats CIRCULATION = operation("library.circulation");
+    static final OperationStats BULK_IMPORT = operation("library.bulkImport");
+    static final OperationStats EXPORT_CSV = operation("library.exportCsv");
+    static final OperationStats ADD_USER = operation("users.addUser");
+    static final OperationStats LOGIN = operation("users.login");
+    static final OperationStats SAVE = operation("file.save");
+    static final OperationStats LOAD = operation("file.load");
+    static final OperationStats JOURNAL_WRITE = operation("journal.write");
+    static final OperationStats SNAPSHOT_WRITE = operation("snapshot.write");
+    static final OperationStats REPLICATION_APPLY = operation("replication.apply");
+
+    static final LongAdder SAVE_BYTES = counter("file.save.bytes");
+    static final LongAdder JOURNAL_BYTES = counter("journal.bytes");
+    static final LongAdder SNAPSHOT_BYTES = counter("snapshot.bytes");
+    static final LongAdder REPLICATION_BYTES = counter("replication.bytes");
+    static final LongAdder PARSE_ERRORS = counter("csv.parseErrors");
+
+    private Metrics() {
+    }
+
+    static OperationStats operation(String name) {
+        return OPERATIONS.computeIfAbsent(name, k -> new OperationStats());
+    }
+
+    static LongAdder counter(String name) {
+        return COUNTERS.computeIfAbsent(name, k -> new LongAdder());
+    }
+
+    static Map<String, OperationStats> operations() {
+        return Collections.unmodifiableMap(OPERATIONS);
+    }
+
+    static Map<String, LongAdder> counters() {
+        return Collections.unmodifiableMap(COUNTERS);
+    }
+
+    static double uptimeSeconds() {
+        return (System.nanoTime() - STARTED) / 1e9;
+    }
+
+    // One line per operation that has run, then the counters.
+    static List<String> report() {
+        List<String> lines = new ArrayList<>();
+        double seconds = uptimeSeconds();
+        lines.add(String.format("%-20s %9s %7s %9s %9s %9s %9s %9s", "operation", "count", "failed",
+                "ops/s", "p50 ms", "p99 ms", "p999 ms", "max ms"));
+        for (Map.Entry<String, OperationStats> e : OPERATIONS.entrySet()) {
+            OperationStats.Snapshot h = e.getValue().snapshot();
+            if (h.count() == 0) continue;
+            lines.add(String.format("%-20s %9d %7d %9.1f %9.3f %9.3f %9.3f %9.3f", e.getKey(), h.count(),
+                    e.getValue().failures(), h.count() / seconds, h.percentile(0.50) / 1e6,
+                    h.percentile(0.99) / 1e6, h.percentile(0.999) / 1e6, h.max() / 1e6));
+        }
+        for (Map.Entry<String, LongAdder> e : COUNTERS.entrySet()) {
+            lines.add(String.format("%-20s %9d", e.getKey(), e.getValue().sum()));
+        }
+        return lines;
+    }
+
+    // Registers the MBean once; later calls do nothing.
+    static synchronized void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("library:type=Metrics");
+            if (!server.isRegistered(name)) server.registerMBean(new MetricsMBean(), name);
+        } catch (JMException e) {
+            System.err.println("⚠️ Could not register metrics MBean: " + e.getMessage());
+        }
+    }
+}
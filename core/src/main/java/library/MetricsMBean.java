@@ -0,0 +1,81 @@
+package library;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.ReflectionException;
+
+// Read-only JMX view of Metrics. Attributes are "<operation>.<stat>" (count,
+// failed, opsPerSecond, p50Micros, p99Micros, p999Micros, maxMicros) plus one per
+// counter. Dynamic, because operations register themselves as they are first used.
+class MetricsMBean implements DynamicMBean {
+    private static final String[] STATS = {"count", "failed", "opsPerSecond", "p50Micros", "p99Micros", "p999Micros", "maxMicros"};
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        LongAdder counter = Metrics.counters().get(attribute);
+        if (counter != null) return counter.sum();
+        int dot = attribute.lastIndexOf('.');
+        OperationStats stats = dot < 0 ? null : Metrics.operations().get(attribute.substring(0, dot));
+        if (stats == null) throw new AttributeNotFoundException(attribute);
+        OperationStats.Snapshot h = stats.snapshot();
+        return switch (attribute.substring(dot + 1)) {
+            case "count" -> (double) h.count();
+            case "failed" -> (double) stats.failures();
+            case "opsPerSecond" -> h.count() / Metrics.uptimeSeconds();
+            case "p50Micros" -> h.percentile(0.50) / 1e3;
+            case "p99Micros" -> h.percentile(0.99) / 1e3;
+            case "p999Micros" -> h.percentile(0.999) / 1e3;
+            case "maxMicros" -> h.max() / 1e3;
+            default -> throw new AttributeNotFoundException(attribute);
+        };
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        AttributeList list = new AttributeList();
+        for (String name : attributes) {
+            try {
+                list.add(new Attribute(name, getAttribute(name)));
+            } catch (AttributeNotFoundException ignored) {
+                // Left out of the result, as the DynamicMBean contract allows.
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> attributes = new ArrayList<>();
+        for (String op : Metrics.operations().keySet()) {
+            for (String stat : STATS) {
+                attributes.add(new MBeanAttributeInfo(op + "." + stat, "double", op + " " + stat, true, false, false));
+            }
+        }
+        for (String counter : Metrics.counters().keySet()) {
+            attributes.add(new MBeanAttributeInfo(counter, "long", counter, true, false, false));
+        }
+        return new MBeanInfo(getClass().getName(), "Library operation metrics",
+                attributes.toArray(new MBeanAttributeInfo[0]), null, null, null);
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException(attribute.getName() + " is read-only");
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+}
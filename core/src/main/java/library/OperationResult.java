@@ -0,0 +1,24 @@
+package library;
+
+// Outcome of a library operation: the console prints the message, the server
+// also reports whether it succeeded.
+class OperationResult {
+    private final boolean success;
+    private final String message;
+
+    private OperationResult(boolean success, String message) {
+        this.success = success;
+        this.message = message;
+    }
+
+    public static OperationResult ok(String message) { return new OperationResult(true, message); }
+    public static OperationResult failed(String message) { return new OperationResult(false, message); }
+
+    public boolean isSuccess() { return success; }
+    public String getMessage() { return message; }
+
+    @Override
+    public String toString() {
+        return message;
+    }
+}
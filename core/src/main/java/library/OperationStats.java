@@ -0,0 +1,78 @@
+package library;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Latency histogram with log-linear buckets: 8 per power of two, so a reported
+// percentile is at most 12.5% above the true value. Buckets are atomic counters,
+// so recording never locks or allocates.
+final class OperationStats {
+    private static final int SUB_BITS = 3;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(64 * SUB_COUNT);
+    private final LongAdder failures = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public void record(long startNanos, boolean success) {
+        long nanos = Math.max(0, System.nanoTime() - startNanos);
+        buckets.incrementAndGet(bucket(nanos));
+        max.accumulate(nanos);
+        if (!success) failures.increment();
+    }
+
+    public long failures() {
+        return failures.sum();
+    }
+
+    public Snapshot snapshot() {
+        long[] counts = new long[buckets.length()];
+        for (int i = 0; i < counts.length; i++) counts[i] = buckets.get(i);
+        return new Snapshot(counts, max.get());
+    }
+
+    static int bucket(long nanos) {
+        if (nanos < SUB_COUNT) return (int) nanos;
+        int exp = 63 - Long.numberOfLeadingZeros(nanos);
+        int sub = (int) (nanos >>> (exp - SUB_BITS)) & (SUB_COUNT - 1);
+        return ((exp - SUB_BITS + 1) << SUB_BITS) + sub;
+    }
+
+    // Largest value that falls into the bucket.
+    static long upperBound(int bucket) {
+        if (bucket < SUB_COUNT) return bucket;
+        int shift = (bucket >> SUB_BITS) - 1;
+        long lower = (long) (SUB_COUNT + (bucket & (SUB_COUNT - 1))) << shift;
+        return lower + (1L << shift) - 1;
+    }
+
+    static final class Snapshot {
+        private final long[] counts;
+        private final long max;
+        private final long count;
+
+        Snapshot(long[] counts, long max) {
+            this.counts = counts;
+            this.max = max;
+            long total = 0;
+            for (long c : counts) total += c;
+            this.count = total;
+        }
+
+        public long count() { return count; }
+        public long max() { return max; }
+
+        // In nanoseconds; 0 when nothing was recorded.
+        public long percentile(double p) {
+            if (count == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(p * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) return Math.min(upperBound(i), max);
+            }
+            return max;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package library;
+
+import java.util.*;
+
+// Running total per key plus a view sorted largest first, so the top entries
+// are read without scanning every key. Each update is O(log n). Thread-safe.
+class RankedCounter {
+    private static final class Entry {
+        final String key;
+        long value;
+
+        Entry(String key) { this.key = key; }
+    }
+
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final TreeSet<Entry> ranked = new TreeSet<>(
+            Comparator.comparingLong((Entry e) -> e.value).reversed().thenComparing(e -> e.key));
+
+    // A zero delta still registers the key, so it shows up with a total of 0.
+    public synchronized void add(String key, long delta) {
+        Entry e = entries.get(key);
+        if (e == null) {
+            e = new Entry(key);
+            entries.put(key, e);
+        } else if (delta == 0) {
+            return;
+        } else {
+            ranked.remove(e);
+        }
+        e.value += delta;
+        ranked.add(e);
+    }
+
+    public synchronized long get(String key) {
+        Entry e = entries.get(key);
+        return e == null ? 0 : e.value;
+    }
+
+    public synchronized List<Map.Entry<String, Long>> top(int k) {
+        List<Map.Entry<String, Long>> result = new ArrayList<>(Math.min(k, ranked.size()));
+        for (Entry e : ranked) {
+            if (result.size() == k) break;
+            result.add(Map.entry(e.key, e.value));
+        }
+        return result;
+    }
+
+    public synchronized boolean isEmpty() {
+        return entries.isEmpty();
+    }
+}
@@ -0,0 +1,284 @@
+package library;
+
+import java.io.*;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+
+// Follows a primary and keeps a read-only Library and the user accounts up to
+// date. Each library seed is written to its own directory (seed-1, seed-2, ...)
+// and opened as a fresh Library, so readers keep using the previous copy until the
+// new one is ready. The accounts live in the data directory itself and a seed
+// replaces them in place, so sessions survive it. Records are applied on one
+// thread, in journal order.
+class ReplicaClient implements ReplicationStatus {
+    private static final long RETRY_MILLIS = 1000;
+
+    private final String host;
+    private final int port;
+    private final String address;
+    private final File dataDir;
+    private final CountDownLatch ready = new CountDownLatch(1);
+    private volatile Library library;
+    private UserManager users; // set in start()
+    private volatile Socket socket;
+    private volatile boolean running = true;
+    private volatile boolean connected;
+    private volatile long primarySeq = -1;
+    private volatile long primaryUsersSeq = -1;
+    private volatile long caughtUpAt = System.currentTimeMillis();
+    private volatile long heardAt;
+    private int generation; // replication thread only, after start()
+    private Thread thread;
+
+    public ReplicaClient(String host, int port, File dataDir) {
+        this.host = host;
+        this.port = port;
+        this.address = host + ":" + port;
+        this.dataDir = dataDir;
+    }
+
+    // Opens the copy left by an earlier run, if any: it is served (stale) while the
+    // primary is unreachable, and catch-up only needs the records after it.
+    public void start() {
+        if (!dataDir.isDirectory() && !dataDir.mkdirs()) throw new UncheckedIOException(new IOException("Cannot create " + dataDir));
+        for (File f : seedDirs()) {
+            if (f.getName().endsWith(".tmp")) deleteTree(f);
+            else generation = Math.max(generation, seedNumber(f));
+        }
+        if (generation > 0) setLibrary(Library.replica(seedDir(generation), address));
+        users = UserManager.replica(dataDir);
+        thread = new Thread(this::run, "replica-" + address);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Waits for the first seed when there was no local copy to start from.
+    public Library awaitLibrary() throws InterruptedException {
+        ready.await();
+        return library;
+    }
+
+    public Library library() {
+        return library;
+    }
+
+    public UserManager users() {
+        return users;
+    }
+
+    public void stop() {
+        running = false;
+        ReplicationPrimary.closeQuietly(socket);
+        try {
+            thread.join(RETRY_MILLIS * 2);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (library != null) library.close();
+        users.close();
+    }
+
+    // How many records behind the primary, as of its last frame.
+    public long lagRecords() {
+        Library current = library;
+        if (current == null || primarySeq < 0) return -1;
+        return Math.max(0, primarySeq - current.journalSeq());
+    }
+
+    // How long the replica has been behind: 0 while caught up.
+    public long lagMillis() {
+        return lagRecords() == 0 ? 0 : System.currentTimeMillis() - caughtUpAt;
+    }
+
+    @Override
+    public List<String> statusLines() {
+        Library current = library;
+        List<String> lines = new ArrayList<>();
+        lines.add("Role: replica of " + address + (connected ? " (connected)" : " (disconnected)"));
+        lines.add("Applied seq: " + (current == null ? "none" : current.journalSeq())
+                + ", primary seq: " + (primarySeq < 0 ? "unknown" : primarySeq));
+        long behind = lagRecords();
+        lines.add("Lag: " + (behind < 0 ? "unknown" : behind + " records, " + lagMillis() + " ms"));
+        lines.add("Accounts seq: " + users.journalSeq() + ", primary: " + (primaryUsersSeq < 0 ? "unknown" : primaryUsersSeq));
+        lines.add("Last heard from the primary: " + (heardAt == 0 ? "never" : (System.currentTimeMillis() - heardAt) + " ms ago"));
+        return lines;
+    }
+
+    private void run() {
+        boolean reseed = false;
+        boolean warned = false;
+        while (running) {
+            try (Socket s = new Socket(host, port)) {
+                socket = s;
+                s.setTcpNoDelay(true);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream(), 1 << 16));
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+                Library current = library;
+                out.writeUTF(ReplicationPrimary.HELLO);
+                out.writeLong(reseed || current == null ? -1 : current.journalSeq());
+                out.writeLong(users.isSeeded() ? users.journalSeq() : -1);
+                out.flush();
+                reseed = false;
+                connected = true;
+                warned = false;
+                System.out.println("🔁 Following the primary at " + address);
+                while (running && !reseed) {
+                    int type = in.readByte();
+                    switch (type) {
+                        case 'A' -> seedUsers(in);
+                        case 'F' -> seed(in);
+                        case 'U' -> {
+                            primaryUsersSeq = in.readLong();
+                            byte[] records = new byte[in.readInt()];
+                            in.readFully(records);
+                            applyUsers(records);
+                        }
+                        case 'R' -> {
+                            primarySeq = in.readLong();
+                            byte[] records = new byte[in.readInt()];
+                            in.readFully(records);
+                            reseed = !apply(records);
+                        }
+                        case 'H' -> primarySeq = in.readLong();
+                        default -> throw new IOException("Unknown replication frame " + type);
+                    }
+                    long now = System.currentTimeMillis();
+                    heardAt = now;
+                    // The accounts seed comes first, before there is a library to ask.
+                    long applied = library == null ? -1 : library.journalSeq();
+                    if (applied >= primarySeq) caughtUpAt = now;
+                    out.writeLong(applied);
+                    out.flush();
+                }
+            } catch (IOException e) {
+                if (running && !warned) {
+                    String why = e instanceof EOFException ? "connection closed" : e.getMessage();
+                    System.err.println("⚠️ Lost the primary at " + address + " (" + why + "); retrying.");
+                    warned = true;
+                }
+            }
+            connected = false;
+            try {
+                // A reseed waits too: the snapshot it needs may still be being written.
+                if (running) Thread.sleep(RETRY_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    // Applies a frame's records in order. Returns false at a CHECKPOINT the replica has
+    // not passed yet: the change behind it was never journaled, so it needs a new seed.
+    private boolean apply(byte[] frame) throws IOException {
+        long start = System.nanoTime();
+        Library current = library;
+        String text = new String(frame, StandardCharsets.UTF_8);
+        try {
+            for (int from = 0, nl; (nl = text.indexOf('\n', from)) >= 0; from = nl + 1) {
+                JournalRecord r = JournalRecord.decode(text.substring(from, nl));
+                if (r == null) throw new IOException("Damaged record from the primary");
+                if (r.getOp().equals("CHECKPOINT") && r.getSeq() > current.journalSeq()) {
+                    System.out.println("🔁 The primary took a checkpoint (seq " + r.getSeq() + "); seeding again.");
+                    return false;
+                }
+                current.applyReplicated(r);
+            }
+            return true;
+        } finally {
+            Metrics.REPLICATION_APPLY.record(start, true);
+        }
+    }
+
+    private void applyUsers(byte[] frame) throws IOException {
+        String text = new String(frame, StandardCharsets.UTF_8);
+        for (int from = 0, nl; (nl = text.indexOf('\n', from)) >= 0; from = nl + 1) {
+            JournalRecord r = JournalRecord.decode(text.substring(from, nl));
+            if (r == null) throw new IOException("Damaged record from the primary");
+            users.applyReplicated(r);
+        }
+    }
+
+    // Receives the primary's user snapshot and swaps the accounts over to it.
+    private void seedUsers(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            String name = in.readUTF();
+            long length = in.readLong();
+            if (!name.equals("users.snap")) throw new IOException("Bad file name from the primary: " + name);
+            File staging = new File(dataDir, name + ".tmp");
+            receive(in, staging, length);
+            users.reseed(staging);
+        }
+        System.out.println("🔁 Seeded the user accounts from the primary (seq " + users.journalSeq() + ")");
+    }
+
+    // Receives a seed into seed-<n>.tmp, renames it into place and switches to it.
+    private void seed(DataInputStream in) throws IOException {
+        int next = generation + 1;
+        File staging = new File(dataDir, "seed-" + next + ".tmp");
+        deleteTree(staging);
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            String name = in.readUTF();
+            long length = in.readLong();
+            if (name.contains("..") || name.startsWith("/")) throw new IOException("Bad file name from the primary: " + name);
+            receive(in, new File(staging, name), length);
+        }
+        if (!staging.isDirectory() && !staging.mkdirs()) throw new IOException("Cannot create " + staging);
+        Files.move(staging.toPath(), seedDir(next).toPath(), StandardCopyOption.ATOMIC_MOVE);
+        Library previous = library;
+        setLibrary(Library.replica(seedDir(next), address));
+        generation = next;
+        if (previous != null) previous.close();
+        // The previous seed may still be read from (archived history); older ones go.
+        for (File f : seedDirs()) {
+            if (f.getName().endsWith(".tmp") || seedNumber(f) < next - 1) deleteTree(f);
+        }
+        System.out.println("🔁 Seeded from the primary's snapshot (seq " + library.journalSeq() + ")");
+    }
+
+    private static void receive(DataInputStream in, File target, long length) throws IOException {
+        File parent = target.getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs()) throw new IOException("Cannot create " + parent);
+        byte[] buf = new byte[1 << 16];
+        try (FileOutputStream fos = new FileOutputStream(target)) {
+            for (long left = length; left > 0; ) {
+                int n = (int) Math.min(buf.length, left);
+                in.readFully(buf, 0, n);
+                fos.write(buf, 0, n);
+                left -= n;
+            }
+            fos.getFD().sync();
+        }
+    }
+
+    private void setLibrary(Library next) {
+        library = next;
+        ready.countDown();
+    }
+
+    private File seedDir(int n) {
+        return new File(dataDir, "seed-" + n);
+    }
+
+    private File[] seedDirs() {
+        File[] dirs = dataDir.listFiles(f -> f.isDirectory() && f.getName().matches("seed-\\d+(\\.tmp)?"));
+        return dirs == null ? new File[0] : dirs;
+    }
+
+    private static int seedNumber(File dir) {
+        String name = dir.getName();
+        int dot = name.indexOf('.');
+        return Integer.parseInt(name.substring(5, dot < 0 ? name.length() : dot));
+    }
+
+    private static void deleteTree(File f) {
+        File[] children = f.listFiles();
+        if (children != null) for (File c : children) deleteTree(c);
+        f.delete();
+    }
+}
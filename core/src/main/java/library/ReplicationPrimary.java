@@ -0,0 +1,236 @@
+package library;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+// Log-shipping read replicas. The primary streams its library and user journals
+// over a loopback TCP port; each replica keeps its own copy of both in its own
+// directory, applies the records in journal order and serves reads from it.
+// Writes on a replica are refused with the primary's address.
+//
+// Protocol (DataOutput encoding). The replica opens with
+//   "LMS-REPLICA 2", then the last library seq and the last user accounts seq it
+//   has applied (-1: none yet)
+// and the primary answers with frames, each starting with a type byte:
+//   'A' accounts seed, 'F' library seed: file count, then name, length and bytes
+//       of each file (accounts: the user snapshot; library: its snapshot and
+//       archive); sent when that journal no longer holds every record the replica
+//       is missing
+//   'U' user records, 'R' library records: the primary's durable seq of that
+//       journal, a length, then journal lines
+//   'H' heartbeat: the primary's durable library seq, after a second with nothing to send
+// After each frame the replica answers with the seq it has applied so far, which
+// the primary reports as that replica's lag.
+class ReplicationPrimary implements ReplicationStatus {
+    static final String HELLO = "LMS-REPLICA 2";
+    static final long HEARTBEAT_MILLIS = 1000;
+    // A replica with more unsent records than this is disconnected rather than held
+    // in memory; it reconnects and resumes from the last seq it applied.
+    private static final long MAX_BACKLOG_BYTES = Long.getLong("library.replicaBacklogBytes", 64L << 20);
+
+    private final Library library;
+    private final UserManager users;
+    private final ServerSocket server;
+    private final Set<Follower> followers = ConcurrentHashMap.newKeySet();
+
+    // Journal lines bound for one replica, with the frame type they go out as.
+    private record Shipment(char frame, byte[] records) {}
+
+    private static final class Follower {
+        final Socket socket;
+        final BlockingQueue<Shipment> backlog = new LinkedBlockingQueue<>();
+        final AtomicLong backlogBytes = new AtomicLong();
+        final Consumer<byte[]> sink = records -> offer('R', records);
+        final Consumer<byte[]> userSink = records -> offer('U', records);
+        volatile boolean overflowed;
+        volatile long appliedSeq = -1;
+
+        Follower(Socket socket) {
+            this.socket = socket;
+        }
+
+        // Runs on the journal writer thread, under the journal's file lock: only queues.
+        // A batch is always taken into an empty backlog, so the catch-up tail (one
+        // batch, at most a compaction's worth of journal) never counts as falling behind.
+        void offer(char frame, byte[] batch) {
+            if (overflowed) return;
+            long queued = backlogBytes.getAndAdd(batch.length);
+            if (queued > 0 && queued + batch.length > MAX_BACKLOG_BYTES) {
+                overflowed = true;
+                backlog.clear();
+            } else {
+                backlog.add(new Shipment(frame, batch));
+            }
+        }
+
+        String address() {
+            return socket.getInetAddress().getHostAddress() + ":" + socket.getPort();
+        }
+    }
+
+    public ReplicationPrimary(Library library, UserManager users, int port) throws IOException {
+        this.library = library;
+        this.users = users;
+        this.server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+    }
+
+    public void start() {
+        Thread acceptor = new Thread(this::acceptLoop, "replication-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public void stop() {
+        try {
+            server.close();
+        } catch (IOException ignored) {
+            // Closing anyway.
+        }
+        for (Follower f : followers) closeQuietly(f.socket);
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    @Override
+    public List<String> statusLines() {
+        long seq = library.durableSeq();
+        List<String> lines = new ArrayList<>();
+        lines.add("Role: primary, shipping the journal on port " + getPort());
+        lines.add("Journal seq: " + seq);
+        if (followers.isEmpty()) {
+            lines.add("Replicas: none connected");
+            return lines;
+        }
+        lines.add("Replicas: " + followers.size());
+        for (Follower f : followers) {
+            long applied = f.appliedSeq;
+            lines.add("   - " + f.address() + (applied < 0 ? " (seeding)"
+                    : " at seq " + applied + " (" + Math.max(0, seq - applied) + " records behind)"));
+        }
+        return lines;
+    }
+
+    private void acceptLoop() {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                Thread.ofVirtual().name("replication-" + socket.getPort()).start(() -> serve(socket));
+            } catch (IOException e) {
+                if (!server.isClosed()) System.err.println("⚠️ Replication accept failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        Follower f = new Follower(socket);
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+            if (!HELLO.equals(in.readUTF())) return;
+            long afterSeq = in.readLong();
+            long afterUsersSeq = in.readLong();
+            List<ShippedFile> accounts = List.of();
+            List<ShippedFile> files = List.of();
+            try {
+                accounts = users.followJournal(afterUsersSeq, f.userSink);
+                files = library.followJournal(afterSeq, f.sink);
+                followers.add(f);
+                Thread.ofVirtual().start(() -> readAcks(f, in));
+                if (!accounts.isEmpty()) sendSeed(out, 'A', accounts);
+                if (!files.isEmpty()) sendSeed(out, 'F', files);
+            } finally {
+                ShippedFile.closeAll(accounts);
+                ShippedFile.closeAll(files);
+            }
+            System.out.println("🔁 Replica " + f.address() + (files.isEmpty() ? " resumed after seq " + afterSeq : " seeded from the snapshot"));
+            stream(f, out);
+            System.err.println("⚠️ Replica " + f.address() + " fell too far behind and was disconnected.");
+        } catch (IOException e) {
+            // The replica went away; it resumes from its own seq when it reconnects.
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            library.unfollowJournal(f.sink);
+            users.unfollowJournal(f.userSink);
+            followers.remove(f);
+        }
+    }
+
+    private void sendSeed(DataOutputStream out, char frame, List<ShippedFile> files) throws IOException {
+        out.writeByte(frame);
+        out.writeInt(files.size());
+        byte[] buf = new byte[1 << 16];
+        for (ShippedFile file : files) {
+            out.writeUTF(file.name);
+            out.writeLong(file.length);
+            for (long pos = 0; pos < file.length; ) {
+                int n = file.channel.read(ByteBuffer.wrap(buf, 0, (int) Math.min(buf.length, file.length - pos)), pos);
+                if (n < 0) throw new EOFException(file.name + " shrank while being sent");
+                out.write(buf, 0, n);
+                pos += n;
+            }
+            Metrics.REPLICATION_BYTES.add(file.length);
+        }
+        out.flush();
+    }
+
+    // Sends queued batches as they come, coalescing whatever piled up meanwhile from
+    // the same journal into one frame.
+    private void stream(Follower f, DataOutputStream out) throws IOException, InterruptedException {
+        List<Shipment> batches = new ArrayList<>();
+        while (!f.overflowed) {
+            Shipment first = f.backlog.poll(HEARTBEAT_MILLIS, TimeUnit.MILLISECONDS);
+            if (f.overflowed) break;
+            if (first == null) {
+                out.writeByte('H');
+                out.writeLong(library.durableSeq());
+            } else {
+                batches.clear();
+                batches.add(first);
+                f.backlog.drainTo(batches);
+                for (int i = 0, j; i < batches.size(); i = j) {
+                    char frame = batches.get(i).frame();
+                    int length = 0;
+                    for (j = i; j < batches.size() && batches.get(j).frame() == frame; j++) length += batches.get(j).records().length;
+                    f.backlogBytes.addAndGet(-length);
+                    out.writeByte(frame);
+                    out.writeLong(frame == 'U' ? users.durableSeq() : library.durableSeq());
+                    out.writeInt(length);
+                    for (int k = i; k < j; k++) out.write(batches.get(k).records());
+                    Metrics.REPLICATION_BYTES.add(length);
+                }
+            }
+            out.flush();
+        }
+    }
+
+    private static void readAcks(Follower f, DataInputStream in) {
+        try {
+            while (true) f.appliedSeq = in.readLong();
+        } catch (IOException e) {
+            // The replica hung up: close our side too so the sender stops.
+            closeQuietly(f.socket);
+        }
+    }
+
+    static void closeQuietly(Socket socket) {
+        try {
+            if (socket != null) socket.close();
+        } catch (IOException ignored) {
+            // Already gone.
+        }
+    }
+}
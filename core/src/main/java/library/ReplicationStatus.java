@@ -0,0 +1,8 @@
+package library;
+
+import java.util.*;
+
+// What a primary or a replica reports about replication on the admin status endpoint.
+interface ReplicationStatus {
+    List<String> statusLines();
+}
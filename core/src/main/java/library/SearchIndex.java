@@ -0,0 +1,133 @@
+package library;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+// Inverted index from case-folded title/author words to the ISBNs containing them.
+// Postings live in a hash map; a sorted set of every term seen lets a query word
+// also match every term it is a prefix of. Terms are never dropped from that set
+// (a stale one just has no postings), so a racing add can't be lost.
+// Updates are atomic per term and queries read without locking.
+class SearchIndex {
+    private static final int TITLE = 1;
+    private static final int AUTHOR = 2;
+
+    private final ConcurrentHashMap<String, Map<String, Integer>> postings = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<String> terms = new ConcurrentSkipListSet<>();
+
+    public void add(Book book) {
+        for (String term : tokenize(book.getTitle())) post(term, book.getIsbn(), TITLE);
+        for (String term : tokenize(book.getAuthor())) post(term, book.getIsbn(), AUTHOR);
+    }
+
+    public void remove(Book book) {
+        Set<String> terms = new HashSet<>(tokenize(book.getTitle()));
+        terms.addAll(tokenize(book.getAuthor()));
+        for (String term : terms) {
+            postings.computeIfPresent(term, (k, isbns) -> {
+                isbns.remove(book.getIsbn());
+                return isbns.isEmpty() ? null : isbns;
+            });
+        }
+    }
+
+    // Every query word must match (AND); each word matches as a prefix so partly
+    // typed input works. Results are ranked best first: title hits above author
+    // hits, whole-word hits above prefix hits.
+    public List<String> search(String query) {
+        Map<String, Integer> scores = scores(query);
+        List<Map.Entry<String, Integer>> ranked = new ArrayList<>(scores.entrySet());
+        ranked.sort(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+        List<String> isbns = new ArrayList<>(ranked.size());
+        for (Map.Entry<String, Integer> e : ranked) isbns.add(e.getKey());
+        return isbns;
+    }
+
+    // The ISBNs search() would return, unranked, for callers that order them another way.
+    public Set<String> matches(String query) {
+        return scores(query).keySet();
+    }
+
+    private Map<String, Integer> scores(String query) {
+        List<String> words = tokenize(query);
+        if (words.isEmpty()) return Collections.emptyMap();
+        // Longer words are usually more selective, so they narrow the candidates first.
+        words.sort(Comparator.comparingInt(String::length).reversed());
+
+        Map<String, Integer> scores = null;
+        for (String word : words) {
+            Map<String, Integer> matches = new HashMap<>();
+            for (String term : terms.subSet(word, word + Character.MAX_VALUE)) {
+                Map<String, Integer> isbns = postings.get(term);
+                if (isbns == null) continue;
+                boolean exact = term.length() == word.length();
+                for (Map.Entry<String, Integer> posting : isbns.entrySet()) {
+                    if (scores != null && !scores.containsKey(posting.getKey())) continue;
+                    matches.merge(posting.getKey(), score(posting.getValue(), exact), Math::max);
+                }
+            }
+            if (scores != null) {
+                for (Map.Entry<String, Integer> e : matches.entrySet()) e.setValue(e.getValue() + scores.get(e.getKey()));
+            }
+            scores = matches;
+            if (scores.isEmpty()) break;
+        }
+        return scores;
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) start = i;
+            else if (!wordChar && start >= 0) {
+                words.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    private void post(String term, String isbn, int field) {
+        // Most terms (surnames, numbers) belong to a handful of books, so posting maps start tiny.
+        boolean[] created = new boolean[1];
+        postings.compute(term, (k, isbns) -> {
+            if (isbns == null) {
+                isbns = new ConcurrentHashMap<>(2);
+                created[0] = true;
+            }
+            isbns.merge(isbn, field, (a, b) -> a | b);
+            return isbns;
+        });
+        if (created[0]) terms.add(term);
+    }
+
+    private static int score(int fields, boolean exact) {
+        int score = ((fields & TITLE) != 0 ? 4 : 0) + ((fields & AUTHOR) != 0 ? 2 : 0);
+        return exact ? score + 1 : score;
+    }
+
+    // Orders books as search() ranks them. The score comes from the book's own
+    // title and author, so a page cursor still finds its place after its book is deleted.
+    public static Comparator<Book> relevance(String query) {
+        List<String> words = tokenize(query);
+        return Comparator.comparingInt((Book b) -> -score(b, words)).thenComparing(Book::getIsbn);
+    }
+
+    private static int score(Book book, List<String> words) {
+        Map<String, Integer> fields = new HashMap<>();
+        for (String term : tokenize(book.getTitle())) fields.merge(term, TITLE, (a, b) -> a | b);
+        for (String term : tokenize(book.getAuthor())) fields.merge(term, AUTHOR, (a, b) -> a | b);
+        int total = 0;
+        for (String word : words) {
+            int best = 0;
+            for (Map.Entry<String, Integer> e : fields.entrySet()) {
+                if (e.getKey().startsWith(word)) best = Math.max(best, score(e.getValue(), e.getKey().length() == word.length()));
+            }
+            total += best;
+        }
+        return total;
+    }
+}
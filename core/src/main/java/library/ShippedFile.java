@@ -0,0 +1,38 @@
+package library;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+// A file opened for copying to a replica; its first `length` bytes are sent.
+final class ShippedFile {
+    final String name;
+    final FileChannel channel;
+    final long length;
+
+    private ShippedFile(String name, FileChannel channel, long length) {
+        this.name = name;
+        this.channel = channel;
+        this.length = length;
+    }
+
+    static ShippedFile open(String name, File file) throws IOException {
+        FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        return new ShippedFile(name, ch, ch.size());
+    }
+
+    static ShippedFile open(String name, File file, long length) throws IOException {
+        return new ShippedFile(name, FileChannel.open(file.toPath(), StandardOpenOption.READ), length);
+    }
+
+    static void closeAll(Collection<ShippedFile> files) {
+        for (ShippedFile f : files) {
+            try {
+                f.channel.close();
+            } catch (IOException ignored) {
+                // Read-only; nothing to lose.
+            }
+        }
+    }
+}
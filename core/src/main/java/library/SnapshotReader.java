@@ -0,0 +1,116 @@
+package library;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+// Reads a snapshot in the format described on SnapshotWriter.
+class SnapshotReader implements Closeable {
+    private static final int WINDOW = 256 << 20;
+
+    private final FileChannel ch;
+    private final long end;
+    private final int version;
+    private final long seq;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long pos;
+
+    // Verifies the checksum and header before any record is decoded, so a damaged
+    // snapshot is rejected as a whole instead of half-loaded.
+    public SnapshotReader(File file, int magic) throws IOException {
+        this.ch = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            long size = ch.size();
+            if (size < 8) throw new IOException("Snapshot too short: " + file);
+            this.end = size - 4;
+            CRC32 crc = new CRC32();
+            for (long p = 0; p < end; p += WINDOW) {
+                crc.update(ch.map(FileChannel.MapMode.READ_ONLY, p, Math.min(WINDOW, end - p)));
+            }
+            ByteBuffer trailer = ByteBuffer.allocate(4);
+            ch.read(trailer, end);
+            if ((int) crc.getValue() != trailer.getInt(0)) throw new IOException("Snapshot checksum mismatch: " + file);
+            ensure(4);
+            if (window.getInt(0) != magic) throw new IOException("Not a snapshot of the expected kind: " + file);
+            pos = 4;
+            this.version = readVarInt();
+            this.seq = readVarLong();
+        } catch (IOException e) {
+            ch.close();
+            throw e;
+        }
+    }
+
+    public int getVersion() { return version; }
+    public long getSeq() { return seq; }
+
+    // Reads just the journal seq from a snapshot's header, without the checksum pass.
+    public static long seqOf(FileChannel ch, int magic) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(24);
+        ch.read(header, 0);
+        header.flip();
+        try {
+            if (header.getInt() != magic) throw new IOException("Not a snapshot of the expected kind");
+            long seq = 0;
+            for (int field = 0; field < 2; field++) { // version, then seq
+                seq = 0;
+                for (int shift = 0; ; shift += 7) {
+                    int b = header.get() & 0xFF;
+                    seq |= (long) (b & 0x7F) << shift;
+                    if ((b & 0x80) == 0) break;
+                }
+            }
+            return seq;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Snapshot header truncated");
+        }
+    }
+
+    public int readByte() throws IOException {
+        ensure(1);
+        return window.get((int) (pos++ - windowStart)) & 0xFF;
+    }
+
+    public long readVarLong() throws IOException {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return v;
+        }
+        throw new IOException("Malformed varint at " + pos);
+    }
+
+    public int readVarInt() throws IOException {
+        return Math.toIntExact(readVarLong());
+    }
+
+    public String readString() throws IOException {
+        int len = readVarInt();
+        ensure(len);
+        byte[] bytes = new byte[len];
+        window.get((int) (pos - windowStart), bytes);
+        pos += len;
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Remaps the window when the next n bytes run past it.
+    private void ensure(int n) throws IOException {
+        if (pos + n > end) throw new EOFException("Snapshot truncated at " + pos);
+        if (window == null || pos + n > windowStart + window.limit()) {
+            windowStart = pos;
+            window = ch.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(Math.max(WINDOW, n), end - pos));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        ch.close();
+    }
+}
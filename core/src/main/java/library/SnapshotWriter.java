@@ -0,0 +1,64 @@
+package library;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+// Binary snapshot format shared by Library and UserManager:
+//   magic (4 bytes) | version | journal seq | body | CRC32 of everything before it (4 bytes)
+// Numbers are unsigned LEB128 varints and strings are a varint byte length followed
+// by UTF-8. The body is encoded in memory (cheap enough to do while mutations are
+// paused) and written to disk afterwards.
+class SnapshotWriter {
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream(1 << 16);
+
+    public void writeByte(int b) {
+        body.write(b);
+    }
+
+    public void writeVarLong(long v) {
+        while ((v & ~0x7FL) != 0) {
+            body.write((int) (v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        body.write((int) v);
+    }
+
+    public void writeString(String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(bytes.length);
+        body.write(bytes, 0, bytes.length);
+    }
+
+    // Writes the snapshot to "<target>.tmp", syncs it and renames it over target,
+    // so a crash leaves either the old snapshot or the new one, never a mix.
+    public void commit(File target, int magic, int version, long seq) throws IOException {
+        long start = System.nanoTime();
+        boolean written = false;
+        File tmp = new File(target.getPath() + ".tmp");
+        try {
+            try (FileOutputStream fos = new FileOutputStream(tmp)) {
+                CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(fos, 1 << 16), new CRC32());
+                DataOutputStream out = new DataOutputStream(checked);
+                out.writeInt(magic);
+                SnapshotWriter header = new SnapshotWriter();
+                header.writeVarLong(version);
+                header.writeVarLong(seq);
+                header.body.writeTo(out);
+                body.writeTo(out);
+                out.flush();
+                out.writeInt((int) checked.getChecksum().getValue());
+                out.flush();
+                fos.getFD().sync();
+                Metrics.SNAPSHOT_BYTES.add(fos.getChannel().size());
+            }
+            Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            written = true;
+        } finally {
+            Metrics.SNAPSHOT_WRITE.record(start, written);
+        }
+    }
+}
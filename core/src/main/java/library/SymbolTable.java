@@ -0,0 +1,33 @@
+package library;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Interns strings that repeat across many loans (usernames, ISBNs) to dense int ids,
+// so each distinct value is stored once however many transactions mention it.
+class SymbolTable {
+    public static final SymbolTable USERS = new SymbolTable();
+    public static final SymbolTable ISBNS = new SymbolTable();
+
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[1024];
+    private int size; // guarded by this
+
+    public int id(String name) {
+        Integer id = ids.get(name);
+        if (id != null) return id;
+        synchronized (this) {
+            id = ids.get(name);
+            if (id != null) return id;
+            if (size == names.length) names = Arrays.copyOf(names, size * 2);
+            names[size] = name;
+            // Published after the name is in place, so a reader that sees the id sees the name.
+            ids.put(name, size);
+            return size++;
+        }
+    }
+
+    public String name(int id) {
+        return names[id];
+    }
+}
@@ -0,0 +1,82 @@
+package library;
+
+// Usernames and ISBNs are stored as SymbolTable ids and dates as epoch days; the
+// String getters rebuild the familiar values on demand. `copy` is the number of
+// the physical copy lent out (1 for records from before copies existed).
+class Transaction {
+    public static final int NOT_RETURNED = Integer.MIN_VALUE;
+
+    private final int userId;
+    private final int isbnId;
+    private final int issueDay;
+    private final int dueDay;
+    private final int copy;
+    private volatile int returnDay;
+    private volatile long fine;
+
+    public Transaction(String username, String isbn, String issueDate, String dueDate, String returnDate, long fine, int copy) {
+        this(SymbolTable.USERS.id(username), SymbolTable.ISBNS.id(isbn), EpochDays.parse(issueDate),
+                EpochDays.parse(dueDate), returnDate == null ? NOT_RETURNED : EpochDays.parse(returnDate), fine, copy);
+    }
+
+    public Transaction(int userId, int isbnId, int issueDay, int dueDay, int returnDay, long fine, int copy) {
+        this.userId = userId;
+        this.isbnId = isbnId;
+        this.issueDay = issueDay;
+        this.dueDay = dueDay;
+        this.copy = copy;
+        this.returnDay = returnDay;
+        this.fine = fine;
+    }
+
+    public String getUsername() { return SymbolTable.USERS.name(userId); }
+    public String getIsbn() { return SymbolTable.ISBNS.name(isbnId); }
+    public String getIssueDate() { return EpochDays.format(issueDay); }
+    public String getDueDate() { return EpochDays.format(dueDay); }
+    public String getReturnDate() { return returnDay == NOT_RETURNED ? null : EpochDays.format(returnDay); }
+    public long getFine() { return fine; }
+    public void setReturnDate(String returnDate) { this.returnDay = returnDate == null ? NOT_RETURNED : EpochDays.parse(returnDate); }
+    public void setFine(long fine) { this.fine = fine; }
+
+    public int getUserId() { return userId; }
+    public int getIsbnId() { return isbnId; }
+    public int getIssueDay() { return issueDay; }
+    public int getDueDay() { return dueDay; }
+    public int getCopy() { return copy; }
+    public int getReturnDay() { return returnDay; }
+    public boolean isReturned() { return returnDay != NOT_RETURNED; }
+    public void setReturnDay(int returnDay) { this.returnDay = returnDay; }
+
+    @Override
+    public String toString() {
+        return "User: " + getUsername() + " | ISBN: " + getIsbn() + " (copy " + copy + ") | Issued: " + getIssueDate() +
+                " | Due: " + getDueDate() + " | Returned: " + (isReturned() ? getReturnDate() : "Not Returned") +
+                " | Fine: ₹" + fine;
+    }
+
+    public String toCSV() {
+        return Csv.format(getUsername(), getIsbn(), getIssueDate(), getDueDate(), isReturned() ? getReturnDate() : "",
+                Long.toString(fine), Integer.toString(copy));
+    }
+
+    public static Transaction fromCSV(String line) {
+        return fromFields(Csv.parseLine(line));
+    }
+
+    public static Transaction fromFields(String[] parts) {
+        try {
+            if (parts.length < 6) {
+                Metrics.PARSE_ERRORS.increment();
+                return null;
+            }
+            String returnDate = parts[4].isEmpty() ? null : parts[4];
+            long fine = Long.parseLong(parts[5]);
+            int copy = parts.length > 6 ? Integer.parseInt(parts[6]) : 1;
+            return new Transaction(parts[0], parts[1], parts[2], parts[3], returnDate, fine, copy);
+        } catch (Exception e) {
+            System.err.println("Error parsing Transaction from CSV: " + Csv.format(parts));
+            Metrics.PARSE_ERRORS.increment();
+            return null;
+        }
+    }
+}
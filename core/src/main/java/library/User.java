@@ -0,0 +1,41 @@
+package library;
+
+class User {
+    private String username;
+    private String passwordHash;
+    private String salt; // New field for security
+    private String role; // Admin / User
+
+    public User(String username, String passwordHash, String salt, String role) {
+        this.username = username;
+        this.passwordHash = passwordHash;
+        this.salt = salt;
+        this.role = role;
+    }
+
+    public String getUsername() { return username; }
+    public String getPasswordHash() { return passwordHash; }
+    public String getSalt() { return salt; }
+    public String getRole() { return role; }
+
+    @Override
+    public String toString() {
+        return username + "," + passwordHash + "," + salt + "," + role;
+    }
+
+    public String toCSV() {
+        return Csv.format(username, passwordHash, salt, role);
+    }
+
+    public static User fromCSV(String line) {
+        return fromFields(Csv.parseLine(line));
+    }
+
+    public static User fromFields(String[] parts) {
+        if (parts.length < 4) {
+            Metrics.PARSE_ERRORS.increment();
+            return null;
+        }
+        return new User(parts[0], parts[1], parts[2], parts[3]);
+    }
+}
@@ -0,0 +1,424 @@
+package library;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+class UserManager {
+    // Keyed by the case-folded username, which is also what makes names unique.
+    // User objects are never changed in place; a new password hash replaces the entry.
+    private final ConcurrentHashMap<String, User> users = new ConcurrentHashMap<>();
+    private final String USER_FILE = "users.csv";
+    private final String CSV_SNAPSHOT_FILE = "users.snapshot";
+    private final String SNAPSHOT_FILE = "users.snap";
+    private final String JOURNAL_FILE = "users.journal";
+    private static final int SNAPSHOT_MAGIC = 0x4C4D5355; // "LMSU"
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final long COMPACT_THRESHOLD = 1_000;
+    private static final long SESSION_TTL_MILLIS = TimeUnit.MINUTES.toMillis(30);
+    // New passwords are stored as PBKDF2 with this many iterations, and older records
+    // (plain SHA-256, or fewer iterations) are rehashed at their next login. 0 keeps SHA-256.
+    private static final int PBKDF2_ITERATIONS = Integer.getInteger("library.pbkdf2Iterations", 600_000);
+    private static final long CREDENTIAL_CACHE_MILLIS = TimeUnit.SECONDS.toMillis(Long.getLong("library.credentialCacheSeconds", 300));
+    // Cloning this is cheaper than a provider lookup per hash, and unlike a
+    // per-thread instance it is not thrown away with every virtual thread.
+    private static final MessageDigest SHA256 = newSha256();
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private final File dataDir;
+    private final Journal journal;
+    // A replica's accounts only change through the primary's journal (see ReplicaClient).
+    private final boolean replica;
+    private final Object snapshotting = new Object();
+    private long lastSnapshotSeq = -1; // guarded by `snapshotting`
+    private final ScheduledFuture<?> compaction;
+    private final ScheduledFuture<?> sessionPurge;
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+    private final SecureRandom tokenRandom = new SecureRandom();
+    // Recently verified logins, so a user logging in again soon after is not put
+    // through PBKDF2 again. Only a keyed fingerprint of the password is kept, and an
+    // entry stops matching once the user's record is replaced.
+    private final ConcurrentHashMap<String, VerifiedLogin> verified = new ConcurrentHashMap<>();
+    private final byte[] fingerprintKey = new byte[32];
+
+    private static final class Session {
+        final User user;
+        volatile long expiresAt;
+
+        Session(User user, long expiresAt) {
+            this.user = user;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static final class VerifiedLogin {
+        final User user;
+        final byte[] fingerprint;
+        final long expiresAt;
+
+        VerifiedLogin(User user, byte[] fingerprint, long expiresAt) {
+            this.user = user;
+            this.fingerprint = fingerprint;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    public UserManager() {
+        this(new File("."));
+    }
+
+    public UserManager(File dataDir) {
+        this(dataDir, false);
+    }
+
+    // Like a Library replica, the journal only needs INTERVAL durability and no
+    // default admin is created: every account comes from the primary.
+    private UserManager(File dataDir, boolean replica) {
+        this.dataDir = dataDir;
+        this.replica = replica;
+        this.journal = new Journal(new File(dataDir, JOURNAL_FILE).getPath(), replica ? Durability.INTERVAL : Durability.configured());
+        tokenRandom.nextBytes(fingerprintKey);
+        long snapshotSeq;
+        if (new File(dataDir, SNAPSHOT_FILE).exists()) {
+            snapshotSeq = loadSnapshot(users);
+        } else {
+            snapshotSeq = FileManager.recoverSnapshot(new File(dataDir, CSV_SNAPSHOT_FILE).getPath(), new File(dataDir, USER_FILE).getPath());
+            for (User u : FileManager.loadData(new File(dataDir, USER_FILE).getPath(), User::fromFields)) users.putIfAbsent(key(u.getUsername()), u);
+        }
+        journal.replay(snapshotSeq, this::applyRecord);
+        this.compaction = Journal.schedule(this::compactIfNeeded, 60);
+        this.sessionPurge = Journal.schedule(this::purgeExpiredSessions, 60);
+        if (users.isEmpty() && !replica) {
+            addUser("admin", "admin123", "Admin");
+            System.out.println("⚠️ Default Admin created (username: admin, password: admin123)");
+        }
+    }
+
+    // Opens a read-only copy of a primary's accounts, kept up to date by ReplicaClient.
+    static UserManager replica(File dataDir) {
+        return new UserManager(dataDir, true);
+    }
+
+    // Stops background compaction and session purging, then flushes and closes the journal.
+    public void close() {
+        compaction.cancel(false);
+        sessionPurge.cancel(false);
+        journal.close();
+    }
+
+    // Returns false if the name is already taken (checked again here, since another
+    // session may have registered it since the caller's userExists check). The slow
+    // hash is computed before taking the lock.
+    public boolean addUser(String username, String password, String role) {
+        long start = System.nanoTime();
+        boolean result = register(username, password, role);
+        Metrics.ADD_USER.record(start, result);
+        return result;
+    }
+
+    private boolean register(String username, String password, String role) {
+        if (replica || userExists(username)) return false;
+        String salt = generateSalt();
+        String hash = newHash(password, salt);
+        synchronized (this) {
+            if (userExists(username)) return false;
+            if (!journal.await(journal.append("ADD_USER", username, hash, salt, role))) return false;
+            users.put(key(username), new User(username, hash, salt, role));
+        }
+        return true;
+    }
+
+    public User login(String username, String password) {
+        long start = System.nanoTime();
+        User result = authenticate(username, password);
+        Metrics.LOGIN.record(start, result != null);
+        return result;
+    }
+
+    private User authenticate(String username, String password) {
+        String key = key(username);
+        User u = users.get(key);
+        if (u == null || !u.getUsername().equals(username)) return null;
+        byte[] fingerprint = fingerprint(password, u.getSalt());
+        VerifiedLogin cached = verified.get(key);
+        if (cached != null && cached.user == u && cached.expiresAt > System.currentTimeMillis()
+                && MessageDigest.isEqual(cached.fingerprint, fingerprint)) {
+            return u;
+        }
+        if (!verifyPassword(password, u)) return null;
+        if (!replica && needsRehash(u.getPasswordHash())) u = rehash(u, password);
+        verified.put(key, new VerifiedLogin(u, fingerprint(password, u.getSalt()),
+                System.currentTimeMillis() + CREDENTIAL_CACHE_MILLIS));
+        return u;
+    }
+
+    // Replaces an outdated hash with one at the configured cost. If the change cannot
+    // be saved, or the record changed meanwhile, the login still succeeds with the old one.
+    private User rehash(User old, String password) {
+        String salt = generateSalt();
+        String hash = newHash(password, salt);
+        User updated = new User(old.getUsername(), hash, salt, old.getRole());
+        synchronized (this) {
+            if (users.get(key(old.getUsername())) != old) return old;
+            if (!journal.await(journal.append("SET_PASSWORD", old.getUsername(), hash, salt))) return old;
+            users.put(key(old.getUsername()), updated);
+        }
+        return updated;
+    }
+
+    // Logs in and hands out a bearer token for the server, or null on bad credentials.
+    // Tokens expire after 30 minutes without use.
+    public String issueToken(String username, String password) {
+        User user = login(username, password);
+        if (user == null) return null;
+        byte[] bytes = new byte[24];
+        tokenRandom.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        sessions.put(token, new Session(user, System.currentTimeMillis() + SESSION_TTL_MILLIS));
+        return token;
+    }
+
+    public User userForToken(String token) {
+        if (token == null) return null;
+        Session session = sessions.get(token);
+        if (session == null) return null;
+        long now = System.currentTimeMillis();
+        if (session.expiresAt < now) {
+            sessions.remove(token, session);
+            return null;
+        }
+        session.expiresAt = now + SESSION_TTL_MILLIS;
+        return session.user;
+    }
+
+    public void endSession(String token) {
+        if (token != null) sessions.remove(token);
+    }
+
+    private void purgeExpiredSessions() {
+        long now = System.currentTimeMillis();
+        sessions.values().removeIf(s -> s.expiresAt < now);
+        verified.values().removeIf(v -> v.expiresAt < now);
+    }
+
+    public boolean userExists(String username) {
+        return users.containsKey(key(username));
+    }
+
+    private static String key(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+    private void applyRecord(JournalRecord r) {
+        String[] f = r.getFields();
+        switch (r.getOp()) {
+            case "ADD_USER" -> users.putIfAbsent(key(f[0]), new User(f[0], f[1], f[2], f[3]));
+            case "SET_PASSWORD" -> users.computeIfPresent(key(f[0]), (k, u) -> new User(u.getUsername(), f[1], f[2], u.getRole()));
+            default -> System.err.println("⚠️ Unknown journal record: " + r.getOp());
+        }
+    }
+
+    private void compactIfNeeded() {
+        if (journal.recordsSinceSnapshot() >= COMPACT_THRESHOLD) compact();
+    }
+
+    // Snapshot body: user count, then username, password hash, salt and role of each.
+    // A replica being seeded can compact alongside the maintenance thread; every
+    // change is journaled, so the seq orders the snapshots and an older one is dropped.
+    public void compact() {
+        SnapshotWriter out = new SnapshotWriter();
+        long seq;
+        synchronized (this) {
+            seq = journal.lastSeq();
+            out.writeVarLong(users.size());
+            for (User u : users.values()) {
+                out.writeString(u.getUsername());
+                out.writeString(u.getPasswordHash());
+                out.writeString(u.getSalt());
+                out.writeString(u.getRole());
+            }
+        }
+        synchronized (snapshotting) {
+            if (seq < lastSnapshotSeq) return;
+            try {
+                out.commit(new File(dataDir, SNAPSHOT_FILE), SNAPSHOT_MAGIC, SNAPSHOT_VERSION, seq);
+                lastSnapshotSeq = seq;
+                journal.truncateThrough(seq);
+            } catch (IOException e) {
+                System.err.println("⚠️ Error writing snapshot: " + SNAPSHOT_FILE);
+            }
+        }
+    }
+
+    // Registers sink for the journal records after afterSeq, for a replica, and returns
+    // no files. If the journal no longer reaches back that far it returns the snapshot
+    // the replica has to start from instead, and sink gets the records after that.
+    List<ShippedFile> followJournal(long afterSeq, Consumer<byte[]> sink) throws IOException {
+        if (afterSeq >= 0 && journal.follow(afterSeq, sink)) return List.of();
+        File snapshot = new File(dataDir, SNAPSHOT_FILE);
+        while (true) {
+            if (!snapshot.exists()) compact();
+            ShippedFile snap = ShippedFile.open(SNAPSHOT_FILE, snapshot);
+            if (journal.follow(SnapshotReader.seqOf(snap.channel, SNAPSHOT_MAGIC), sink)) return List.of(snap);
+            // A newer snapshot replaced this one and compacted the journal: retry.
+            ShippedFile.closeAll(List.of(snap));
+        }
+    }
+
+    void unfollowJournal(Consumer<byte[]> sink) {
+        journal.unfollow(sink);
+    }
+
+    // The last record applied (on a replica) or queued (on a primary).
+    public long journalSeq() {
+        return journal.lastSeq();
+    }
+
+    public long durableSeq() {
+        return journal.durableSeq();
+    }
+
+    // Whether a replica has received the primary's accounts yet.
+    boolean isSeeded() {
+        return new File(dataDir, SNAPSHOT_FILE).exists();
+    }
+
+    // Applies a record shipped from the primary under the primary's seq; records
+    // already applied are skipped.
+    synchronized void applyReplicated(JournalRecord r) {
+        if (journal.appendReplicated(r)) applyRecord(r);
+    }
+
+    // Replaces every account with those in a snapshot from the primary. Accounts are
+    // swapped in rather than cleared first, so logins keep working meanwhile.
+    synchronized void reseed(File snapshot) throws IOException {
+        Map<String, User> fresh = new HashMap<>();
+        long seq;
+        synchronized (snapshotting) {
+            Files.move(snapshot.toPath(), new File(dataDir, SNAPSHOT_FILE).toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            seq = loadSnapshot(fresh);
+            lastSnapshotSeq = Math.max(lastSnapshotSeq, seq);
+        }
+        users.keySet().retainAll(fresh.keySet());
+        users.putAll(fresh);
+        journal.truncateThrough(seq);
+    }
+
+    private long loadSnapshot(Map<String, User> into) {
+        try (SnapshotReader in = new SnapshotReader(new File(dataDir, SNAPSHOT_FILE), SNAPSHOT_MAGIC)) {
+            if (in.getVersion() != SNAPSHOT_VERSION) throw new IOException("Unsupported snapshot version " + in.getVersion());
+            int count = in.readVarInt();
+            for (int i = 0; i < count; i++) {
+                User u = new User(in.readString(), in.readString(), in.readString(), in.readString());
+                into.putIfAbsent(key(u.getUsername()), u);
+            }
+            return in.getSeq();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot load user snapshot " + SNAPSHOT_FILE + ": " + e.getMessage(), e);
+        }
+    }
+
+    // --- New Methods ---
+    private static String generateSalt() {
+        SecureRandom random = new SecureRandom();
+        byte[] salt = new byte[16];
+        random.nextBytes(salt);
+        return Base64.getEncoder().encodeToString(salt);
+    }
+
+    // Stored hashes are either hex SHA-256 of salt + password (older records) or
+    // "pbkdf2$<iterations>$<hex>", PBKDF2-HMAC-SHA256 over the same salt.
+    public static String hashPassword(String pwd, String salt) {
+        MessageDigest md = sha256();
+        md.update(Base64.getDecoder().decode(salt));
+        return toHex(md.digest(pwd.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public static String pbkdf2(String pwd, String salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(pwd.toCharArray(), Base64.getDecoder().decode(salt), iterations, 256);
+        try {
+            byte[] key = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+            return "pbkdf2$" + iterations + "$" + toHex(key);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Hash error.", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    private static String newHash(String pwd, String salt) {
+        return PBKDF2_ITERATIONS > 0 ? pbkdf2(pwd, salt, PBKDF2_ITERATIONS) : hashPassword(pwd, salt);
+    }
+
+    // Compares in constant time, so response timing does not reveal how much of the hash matched.
+    private static boolean verifyPassword(String pwd, User u) {
+        String stored = u.getPasswordHash();
+        String actual;
+        if (stored.startsWith("pbkdf2$")) {
+            String[] parts = stored.split("\\$");
+            if (parts.length != 3) return false;
+            try {
+                actual = pbkdf2(pwd, u.getSalt(), Integer.parseInt(parts[1]));
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        } else {
+            actual = hashPassword(pwd, u.getSalt());
+        }
+        return MessageDigest.isEqual(actual.getBytes(StandardCharsets.US_ASCII), stored.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static boolean needsRehash(String stored) {
+        if (PBKDF2_ITERATIONS <= 0) return false;
+        if (!stored.startsWith("pbkdf2$")) return true;
+        int end = stored.indexOf('$', 7);
+        return end < 0 || Integer.parseInt(stored.substring(7, end)) < PBKDF2_ITERATIONS;
+    }
+
+    // Keyed with a per-process secret, so the cache never holds anything that could be
+    // checked against a password guess outside this process.
+    private byte[] fingerprint(String pwd, String salt) {
+        MessageDigest md = sha256();
+        md.update(fingerprintKey);
+        md.update(salt.getBytes(StandardCharsets.US_ASCII));
+        return md.digest(pwd.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Hash error.", e);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return (MessageDigest) SHA256.clone();
+        } catch (CloneNotSupportedException e) {
+            return newSha256();
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] out = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            out[2 * i] = HEX[(bytes[i] >> 4) & 0xf];
+            out[2 * i + 1] = HEX[bytes[i] & 0xf];
+        }
+        return new String(out);
+    }
+    // --- End New Methods ---
+}
@@ -0,0 +1,71 @@
+package library;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Bulk import reads publisher files and the books.csv that Export CSV writes.
+class CatalogImportTest {
+    @TempDir
+    File primaryDir;
+
+    @TempDir
+    File importDir;
+
+    @Test
+    void exportedCatalogImportsBack() throws IOException {
+        Library library = new Library(primaryDir);
+        assertTrue(library.add(new Book("Dune", "Frank Herbert", "111", 3)).isSuccess());
+        assertTrue(library.add(new Book("Emma, a Novel", "Jane \"J\" Austen", "222", 1)).isSuccess());
+        assertTrue(library.add(new Book("Ulysses", "James Joyce", "333", 2)).isSuccess());
+        // An issued title exports with status "Issued".
+        assertTrue(library.checkOut("222", "alice").isSuccess());
+        assertTrue(library.exportCsv().isSuccess());
+        library.close();
+
+        Library imported = new Library(importDir);
+        OperationResult result = imported.bulkImport(new File(primaryDir, "books.csv").getPath());
+        assertTrue(result.isSuccess(), result.getMessage());
+        assertEquals(Map.of("111", 3, "222", 1, "333", 2), copiesByIsbn(imported));
+        assertEquals("Emma, a Novel|Jane \"J\" Austen", describe(imported, "222"));
+        imported.close();
+    }
+
+    @Test
+    void readsOlderAndPublisherLayouts() throws IOException {
+        File older = new File(importDir, "older.csv");
+        Files.write(older.toPath(), List.of("Dune,Frank Herbert,111,Available", "Emma,Jane Austen,222,Issued"),
+                StandardCharsets.UTF_8);
+        File publisher = new File(importDir, "publisher.csv");
+        Files.write(publisher.toPath(), List.of("title,author,isbn,copies", "Ulysses,James Joyce,333,4", "Ulysses 2,James Joyce,444"),
+                StandardCharsets.UTF_8);
+
+        Library library = new Library(primaryDir);
+        assertTrue(library.bulkImport(older.getPath()).isSuccess());
+        assertTrue(library.bulkImport(publisher.getPath()).isSuccess());
+        assertEquals(Map.of("111", 1, "222", 1, "333", 4, "444", 1), copiesByIsbn(library));
+        library.close();
+    }
+
+    private static Map<String, Integer> copiesByIsbn(Library library) {
+        Map<String, Integer> copies = new HashMap<>();
+        for (Book b : library.getBooks()) copies.put(b.getIsbn(), b.getCopies());
+        return copies;
+    }
+
+    private static String describe(Library library, String isbn) {
+        for (Book b : library.getBooks()) {
+            if (b.getIsbn().equals(isbn)) return b.getTitle() + "|" + b.getAuthor();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,109 @@
+package library;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// RFC 4180 fields through Csv and the memory-mapped loaders in FileManager.
+class CsvTest {
+    @TempDir
+    File dir;
+
+    @Test
+    void formatAndParseRoundTrip() {
+        String[][] records = {
+                {"plain", "with, comma", "with \"quotes\"", "line\nbreak", "crlf\r\nbreak", ""},
+                {"\"", ",", "ünïcødé – 書名", "trailing space "},
+        };
+        for (String[] record : records) assertArrayEquals(record, Csv.parseLine(Csv.format(record)));
+    }
+
+    @Test
+    void parsesQuotedFieldsAcrossLinesAndMixedLineEnds() {
+        String text = "a,\"b,1\",c\r\n"
+                + "\r\n"                                  // blank lines are skipped
+                + "\"multi\r\nline\",\"say \"\"hi\"\"\",\n"
+                + "\"\",x\n"
+                + "last,record";                          // no final line break
+        List<String[]> records = parse(text);
+        assertEquals(4, records.size());
+        assertArrayEquals(new String[] {"a", "b,1", "c"}, records.get(0));
+        assertArrayEquals(new String[] {"multi\r\nline", "say \"hi\"", ""}, records.get(1));
+        assertArrayEquals(new String[] {"", "x"}, records.get(2));
+        assertArrayEquals(new String[] {"last", "record"}, records.get(3));
+    }
+
+    // The parallel loader splits files into chunks of about CHUNK_SIZE bytes at line
+    // breaks outside quotes. Here the first line break past that size is inside a
+    // quoted field, so splitting there would tear the record in two.
+    @Test
+    void quotedNewlineOnAChunkBoundary() throws IOException {
+        List<String[]> expected = new ArrayList<>();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(FileManager.CHUNK_SIZE + 4096);
+        int n = 0;
+        while (out.size() < FileManager.CHUNK_SIZE - 200) {
+            String[] record = {"Title, " + n, "Author \"" + n + "\"", "isbn-" + n};
+            expected.add(record);
+            out.writeBytes((Csv.format(record) + (n % 2 == 0 ? "\r\n" : "\n")).getBytes(StandardCharsets.UTF_8));
+            n++;
+        }
+        // Pad with one record so the next one opens its quote three bytes before the boundary.
+        String[] padding = {"x".repeat(FileManager.CHUNK_SIZE - 3 - out.size() - 1)};
+        expected.add(padding);
+        out.writeBytes((padding[0] + "\n").getBytes(StandardCharsets.UTF_8));
+        String[] straddling = {"ab\ncd, \"ef\"", "author", "isbn-boundary"};
+        expected.add(straddling);
+        out.writeBytes((Csv.format(straddling) + "\n").getBytes(StandardCharsets.UTF_8));
+        assertEquals('\n', out.toByteArray()[FileManager.CHUNK_SIZE]);
+        for (int i = 0; i < 1000; i++) {
+            String[] record = {"tail " + i, "a,b", "isbn-t" + i};
+            expected.add(record);
+            out.writeBytes((Csv.format(record) + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+        File file = new File(dir, "big.csv");
+        Files.write(file.toPath(), out.toByteArray());
+
+        List<String[]> sequential = new ArrayList<>();
+        FileManager.forEachRecord(file.getPath(), sequential::add);
+        assertSameRecords(joined(expected), joined(sequential));
+
+        List<String[]> parallel = Collections.synchronizedList(new ArrayList<>());
+        FileManager.forEachRecordParallel(file.getPath(), parallel::add);
+        List<String> sortedExpected = joined(expected);
+        List<String> sortedParallel = joined(parallel);
+        Collections.sort(sortedExpected);
+        Collections.sort(sortedParallel);
+        assertSameRecords(sortedExpected, sortedParallel);
+    }
+
+    private static List<String[]> parse(String text) {
+        List<String[]> records = new ArrayList<>();
+        Csv.parse(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)), records::add);
+        return records;
+    }
+
+    // Reports only the first difference; the lists hold about 200,000 records.
+    private static void assertSameRecords(List<String> expected, List<String> actual) {
+        for (int i = 0; i < Math.min(expected.size(), actual.size()); i++) {
+            assertEquals(expected.get(i), actual.get(i), "record " + i);
+        }
+        assertEquals(expected.size(), actual.size(), "records");
+    }
+
+    private static List<String> joined(List<String[]> records) {
+        List<String> lines = new ArrayList<>(records.size());
+        for (String[] r : records) lines.add(String.join("\u0001", r));
+        return lines;
+    }
+}
@@ -0,0 +1,119 @@
+package library;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// A crash can leave a torn or corrupt record at the end of the journal. Replay
+// applies the intact records before it, cuts the rest off and carries on numbering
+// from the last good record.
+class JournalTest {
+    @TempDir
+    File dir;
+
+    @Test
+    void tornTailIsCutOffAndPrefixReplayed() throws IOException {
+        File file = new File(dir, "test.journal");
+        writeRecords(file, 3);
+        long intact = file.length();
+        // The process died halfway through writing record 4.
+        Files.write(file.toPath(), "4\tADD_BOOK\tDune\tFrank Her".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        Journal journal = new Journal(file.getPath(), Durability.EVERY_OP);
+        List<JournalRecord> replayed = replay(journal, 0);
+        assertEquals(List.of(1L, 2L, 3L), seqs(replayed));
+        assertArrayEquals(new String[] {"title 2", "author 2", "isbn-2"}, replayed.get(1).getFields());
+        assertEquals(intact, file.length(), "torn tail truncated");
+
+        assertEquals(4L, journal.append("ADD_BOOK", "title 4", "author 4", "isbn-4").join());
+        journal.close();
+        assertEquals(List.of(1L, 2L, 3L, 4L), seqs(replay(file, 0)));
+    }
+
+    @Test
+    void corruptRecordEndsTheLog() throws IOException {
+        File file = new File(dir, "test.journal");
+        writeRecords(file, 3);
+        String[] lines = Files.readString(file.toPath(), StandardCharsets.UTF_8).split("\n");
+        long firstRecord = lines[0].length() + 1;
+        // One flipped byte inside record 2: its checksum no longer matches.
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(firstRecord + 5);
+            int b = raf.read();
+            raf.seek(firstRecord + 5);
+            raf.write(b ^ 0x01);
+        }
+
+        Journal journal = new Journal(file.getPath(), Durability.EVERY_OP);
+        assertEquals(List.of(1L), seqs(replay(journal, 0)));
+        assertEquals(firstRecord, file.length(), "corrupt record and everything after it cut off");
+        assertEquals(2L, journal.append("ADD_BOOK", "again", "author", "isbn-x").join());
+        journal.close();
+        assertEquals(List.of(1L, 2L), seqs(replay(file, 0)));
+    }
+
+    @Test
+    void recordsCoveredBySnapshotAreSkipped() throws IOException {
+        File file = new File(dir, "test.journal");
+        writeRecords(file, 5);
+        assertEquals(List.of(4L, 5L), seqs(replay(file, 3)));
+    }
+
+    @Test
+    void libraryRecoversBooksBeforeATornTail() throws IOException {
+        Library library = new Library(dir);
+        assertTrue(library.add(new Book("Dune", "Frank Herbert", "111")).isSuccess());
+        assertTrue(library.add(new Book("Emma", "Jane Austen", "222")).isSuccess());
+        assertTrue(library.checkOut("111", "alice").isSuccess());
+        library.close();
+        Files.write(new File(dir, "library.journal").toPath(), "4\tBORROW\tbob\t22".getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+
+        Library reopened = new Library(dir);
+        assertEquals(2, reopened.getBooks().size());
+        assertEquals(1, reopened.loansDueWithin(30).size());
+        assertTrue(reopened.checkOut("222", "bob").isSuccess(), "appends continue after the cut");
+        reopened.close();
+
+        Library again = new Library(dir);
+        assertEquals(2, again.loansDueWithin(30).size());
+        again.close();
+    }
+
+    private static void writeRecords(File file, int count) {
+        Journal journal = new Journal(file.getPath(), Durability.EVERY_OP);
+        journal.replay(0, r -> { });
+        for (int i = 1; i <= count; i++) journal.append("ADD_BOOK", "title " + i, "author " + i, "isbn-" + i).join();
+        journal.close();
+    }
+
+    private static List<JournalRecord> replay(File file, long snapshotSeq) {
+        Journal journal = new Journal(file.getPath(), Durability.EVERY_OP);
+        List<JournalRecord> records = replay(journal, snapshotSeq);
+        journal.close();
+        return records;
+    }
+
+    private static List<JournalRecord> replay(Journal journal, long snapshotSeq) {
+        List<JournalRecord> records = new ArrayList<>();
+        journal.replay(snapshotSeq, records::add);
+        return records;
+    }
+
+    private static List<Long> seqs(List<JournalRecord> records) {
+        List<Long> seqs = new ArrayList<>();
+        for (JournalRecord r : records) seqs.add(r.getSeq());
+        return seqs;
+    }
+}
@@ -0,0 +1,88 @@
+package library;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Many threads borrow and return the same few ISBNs at once; afterwards (and after
+// a reload from the journal) every copy is either on the shelf or on exactly one loan.
+class LibraryConcurrencyTest {
+    private static final String[] ISBNS = {"STRESS-1", "STRESS-2", "STRESS-3"};
+    private static final int COPIES = 2;
+    private static final int THREADS = 16;
+    private static final int OPS_PER_THREAD = 300;
+
+    @TempDir
+    File dataDir;
+
+    @Test
+    void sameIsbnsFromManyThreads() throws Exception {
+        Library library = new Library(dataDir);
+        for (String isbn : ISBNS) {
+            assertTrue(library.add(new Book("Title " + isbn, "Author", isbn, COPIES)).isSuccess());
+        }
+
+        AtomicInteger borrowed = new AtomicInteger();
+        AtomicInteger returned = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            String user = "user" + t;
+            workers.add(pool.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < OPS_PER_THREAD; i++) {
+                    String isbn = ISBNS[random.nextInt(ISBNS.length)];
+                    if (random.nextBoolean()) {
+                        if (library.checkOut(isbn, user).isSuccess()) borrowed.incrementAndGet();
+                    } else {
+                        if (library.checkIn(isbn, user).isSuccess()) returned.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> f : workers) f.get();
+        pool.shutdown();
+
+        assertConsistent(library, borrowed.get() - returned.get());
+        library.close();
+
+        Library reloaded = new Library(dataDir);
+        assertConsistent(reloaded, borrowed.get() - returned.get());
+        reloaded.close();
+    }
+
+    private static void assertConsistent(Library library, int expectedOpen) {
+        // Every loan is due within the week it was issued in.
+        List<Transaction> open = library.loansDueWithin(30);
+        assertEquals(expectedOpen, open.size(), "open loans");
+        assertEquals(ISBNS.length * COPIES, library.copies(), "copies");
+        assertEquals(library.copies(), library.availableCopies() + open.size(), "available + on loan");
+
+        Set<String> lent = new HashSet<>();
+        for (Transaction t : open) {
+            assertTrue(t.getCopy() >= 1 && t.getCopy() <= COPIES, "copy number " + t.getCopy());
+            assertTrue(lent.add(t.getIsbn() + "#" + t.getCopy()), "copy lent twice: " + t.getIsbn() + " #" + t.getCopy());
+        }
+        for (Book b : library.getBooks()) {
+            long onLoan = open.stream().filter(t -> t.getIsbn().equals(b.getIsbn())).count();
+            assertEquals(b.getCopies() - onLoan, b.getAvailable(), "available copies of " + b.getIsbn());
+        }
+    }
+}
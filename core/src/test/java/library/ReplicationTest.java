@@ -0,0 +1,282 @@
+package library;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// A primary and its replicas, each in its own JVM as started from the command line,
+// talking over loopback: the replicas are driven and checked through the HTTP API.
+class ReplicationTest {
+    private static final long TIMEOUT_MILLIS = 60_000;
+    private static final Pattern TOKEN = Pattern.compile("\"token\":\"([^\"]+)\"");
+    private static final Pattern TOTAL = Pattern.compile("\"total\":(\\d+)");
+    private static final Pattern PRIMARY_SEQ = Pattern.compile("Journal seq: (\\d+)");
+    private static final Pattern APPLIED_SEQ = Pattern.compile("Applied seq: (\\d+)");
+    private static final Pattern SEEDED_AT = Pattern.compile("Seeded from the primary's snapshot \\(seq (\\d+)\\)");
+
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private final List<Process> processes = new ArrayList<>();
+
+    @TempDir
+    File dir;
+
+    // One JVM of the cluster: its HTTP port and where its console output goes.
+    private record Node(Process process, int port, File log) {}
+
+    @AfterEach
+    void stopAll() throws InterruptedException {
+        for (Process p : processes) p.destroy();
+        for (Process p : processes) {
+            if (!p.waitFor(10, TimeUnit.SECONDS)) p.destroyForcibly().waitFor();
+        }
+    }
+
+    @Test
+    void replicaConvergesRefusesWritesAndResumesAfterARestart() throws Exception {
+        File primaryDir = new File(dir, "primary");
+        int replicationPort = freePort();
+        Node primary = startPrimary(primaryDir, replicationPort);
+        String admin = login(primary, "admin", "admin123");
+        for (int i = 1; i <= 20; i++) addBook(primary, admin, "Book " + i, "isbn-" + i);
+
+        File replicaDir = new File(dir, "replica");
+        Node replica = startReplica(replicationPort, freePort(), replicaDir);
+        // No default admin on a replica: this account came over in the 'A' seed.
+        String replicaAdmin = login(replica, "admin", "admin123");
+        awaitConverged(primary, admin, replica, replicaAdmin);
+        assertEquals(20, total(replica, replicaAdmin));
+
+        HttpResponse<String> refused = post(replica, replicaAdmin, "/books/add", "title", "Dune", "author", "Frank Herbert", "isbn", "111");
+        assertEquals(409, refused.statusCode());
+        assertTrue(refused.body().contains("read-only replica"), refused.body());
+        assertEquals(409, post(replica, replicaAdmin, "/borrow", "isbn", "isbn-1").statusCode());
+        assertEquals(409, post(replica, replicaAdmin, "/users/add", "username", "mallory", "password", "x").statusCode());
+        assertEquals(20, total(replica, replicaAdmin));
+
+        // A new account reaches the running replica in a 'U' frame.
+        assertEquals(200, post(primary, admin, "/users/add", "username", "alice", "password", "secret").statusCode());
+        await("alice can log in on the replica", () -> tryLogin(replica, "alice", "secret") != null);
+        String alice = login(primary, "alice", "secret");
+        assertEquals(200, post(primary, alice, "/borrow", "isbn", "isbn-7").statusCode());
+        String aliceOnReplica = login(replica, "alice", "secret");
+        await("alice's loan reaches the replica", () -> get(replica, aliceOnReplica, "/history").body().contains("isbn-7"));
+
+        awaitConverged(primary, admin, replica, replicaAdmin);
+        long appliedBeforeStop = seq(replica, replicaAdmin, APPLIED_SEQ);
+        stop(replica);
+        for (int i = 21; i <= 25; i++) addBook(primary, admin, "Book " + i, "isbn-" + i);
+
+        Node restarted = startReplica(replicationPort, replica.port(), replicaDir);
+        String restartedAdmin = login(restarted, "admin", "admin123");
+        awaitConverged(primary, admin, restarted, restartedAdmin);
+        assertEquals(25, total(restarted, restartedAdmin));
+        assertTrue(read(primary.log()).contains("resumed after seq " + appliedBeforeStop), read(primary.log()));
+        assertFalse(new File(replicaDir, "seed-2").exists(), "resumed from its own copy, not seeded again");
+        assertTrue(get(restarted, login(restarted, "alice", "secret"), "/history").body().contains("isbn-7"));
+    }
+
+    @Test
+    void replicasReseedAfterACheckpoint() throws Exception {
+        File primaryDir = new File(dir, "primary");
+        int replicationPort = freePort();
+        Node primary = startPrimary(primaryDir, replicationPort);
+        String admin = login(primary, "admin", "admin123");
+        for (int i = 1; i <= 10; i++) addBook(primary, admin, "Book " + i, "isbn-" + i);
+
+        File followingDir = new File(dir, "following");
+        File stoppedDir = new File(dir, "stopped");
+        Node following = startReplica(replicationPort, freePort(), followingDir);
+        Node stopped = startReplica(replicationPort, freePort(), stoppedDir);
+        String followingAdmin = login(following, "admin", "admin123");
+        awaitConverged(primary, admin, following, followingAdmin);
+        awaitConverged(primary, admin, stopped, login(stopped, "admin", "admin123"));
+        stop(stopped);
+
+        // A bulk import is not journaled book by book: the primary logs a CHECKPOINT,
+        // writes a snapshot and truncates its journal.
+        File catalog = new File(dir, "catalog.csv");
+        List<String> rows = new ArrayList<>(List.of("title,author,isbn,copies"));
+        for (int i = 1; i <= 50; i++) rows.add("Imported " + i + ",Publisher,imp-" + i + ",2");
+        Files.write(catalog.toPath(), rows, StandardCharsets.UTF_8);
+        HttpResponse<String> imported = post(primary, admin, "/books/import", "file", catalog.getAbsolutePath());
+        assertEquals(200, imported.statusCode(), imported.body());
+        for (int i = 11; i <= 13; i++) addBook(primary, admin, "Book " + i, "isbn-" + i);
+
+        // The replica that saw the CHECKPOINT go past fetches the new snapshot.
+        await("the following replica has the import", () -> total(following, followingAdmin) == 63);
+        awaitConverged(primary, admin, following, followingAdmin);
+        assertTrue(read(following.log()).contains("took a checkpoint"), read(following.log()));
+        assertTrue(new File(followingDir, "seed-2").isDirectory());
+
+        // The stopped one is behind the truncated journal: the snapshot, then the
+        // three books journaled after it.
+        Node restarted = startReplica(replicationPort, stopped.port(), stoppedDir);
+        String restartedAdmin = login(restarted, "admin", "admin123");
+        awaitConverged(primary, admin, restarted, restartedAdmin);
+        assertEquals(63, total(restarted, restartedAdmin));
+        Matcher seeded = SEEDED_AT.matcher(read(restarted.log()));
+        assertTrue(seeded.find(), read(restarted.log()));
+        assertEquals(seq(primary, admin, PRIMARY_SEQ), Long.parseLong(seeded.group(1)) + 3);
+        assertTrue(new File(stoppedDir, "seed-2").isDirectory());
+    }
+
+    private Node startPrimary(File dataDir, int replicationPort) throws IOException, InterruptedException {
+        return start(dataDir, new File(dir, "primary.log"), "--primary", Integer.toString(freePort()), Integer.toString(replicationPort));
+    }
+
+    private Node startReplica(int replicationPort, int port, File dataDir) throws IOException, InterruptedException {
+        File log = new File(dir, dataDir.getName() + "-" + System.nanoTime() + ".log");
+        return start(dir, log, "--replica", "localhost:" + replicationPort, Integer.toString(port), dataDir.getAbsolutePath());
+    }
+
+    // Runs the main class on this test's classpath and waits until its HTTP port answers.
+    private Node start(File workDir, File log, String... args) throws IOException, InterruptedException {
+        if (!workDir.isDirectory() && !workDir.mkdirs()) throw new IOException("Cannot create " + workDir);
+        List<String> command = new ArrayList<>(List.of(
+                new File(System.getProperty("java.home"), "bin/java").getPath(),
+                "-cp", System.getProperty("java.class.path"),
+                // Keeps logins cheap; the hash cost is not what is being tested.
+                "-Dlibrary.pbkdf2Iterations=1000",
+                "library.LibraryManagementSystem"));
+        command.addAll(List.of(args));
+        Process process = new ProcessBuilder(command).directory(workDir).redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(log)).start();
+        processes.add(process);
+        int port = Integer.parseInt(args[0].equals("--primary") ? args[1] : args[2]);
+        Node node = new Node(process, port, log);
+        await(String.join(" ", args) + " listening", () -> {
+            if (!process.isAlive()) fail("Exited with " + process.exitValue() + ":\n" + read(log));
+            try {
+                get(node, null, "/books");
+                return true;
+            } catch (UncheckedIOException e) {
+                return false;
+            }
+        });
+        return node;
+    }
+
+    // Stops a node as Ctrl-C would, so its shutdown hook flushes the journal.
+    private static void stop(Node node) throws InterruptedException {
+        node.process().destroy();
+        assertTrue(node.process().waitFor(10, TimeUnit.SECONDS), "stopped");
+    }
+
+    private void awaitConverged(Node primary, String primaryToken, Node replica, String replicaToken) throws InterruptedException {
+        await("replica on port " + replica.port() + " caught up", () -> {
+            long target = seq(primary, primaryToken, PRIMARY_SEQ);
+            return seq(replica, replicaToken, APPLIED_SEQ) == target;
+        });
+    }
+
+    private static void await(String what, BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) fail("Timed out waiting: " + what);
+            Thread.sleep(100);
+        }
+    }
+
+    private void addBook(Node node, String token, String title, String isbn) throws IOException {
+        HttpResponse<String> r = post(node, token, "/books/add", "title", title, "author", "Author", "isbn", isbn);
+        assertEquals(200, r.statusCode(), r.body());
+    }
+
+    private String login(Node node, String username, String password) throws IOException {
+        String token = tryLogin(node, username, password);
+        assertTrue(token != null, "login as " + username + " on port " + node.port());
+        return token;
+    }
+
+    private String tryLogin(Node node, String username, String password) {
+        try {
+            Matcher m = TOKEN.matcher(post(node, null, "/login", "username", username, "password", password).body());
+            return m.find() ? m.group(1) : null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long total(Node node, String token) {
+        return match(get(node, token, "/books?limit=1"), TOTAL);
+    }
+
+    private long seq(Node node, String token, Pattern line) {
+        return match(get(node, token, "/replication"), line);
+    }
+
+    private static long match(HttpResponse<String> r, Pattern pattern) {
+        Matcher m = pattern.matcher(r.body());
+        if (!m.find()) fail(r.statusCode() + ": " + r.body());
+        return Long.parseLong(m.group(1));
+    }
+
+    private HttpResponse<String> get(Node node, String token, String pathAndQuery) {
+        try {
+            return send(node, token, pathAndQuery, HttpRequest.BodyPublishers.noBody(), "GET");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private HttpResponse<String> post(Node node, String token, String path, String... form) throws IOException {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < form.length; i += 2) {
+            if (i > 0) body.append('&');
+            body.append(form[i]).append('=').append(URLEncoder.encode(form[i + 1], StandardCharsets.UTF_8));
+        }
+        return send(node, token, path, HttpRequest.BodyPublishers.ofString(body.toString()), "POST");
+    }
+
+    private HttpResponse<String> send(Node node, String token, String path, HttpRequest.BodyPublisher body, String method) throws IOException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + node.port() + path))
+                .timeout(Duration.ofSeconds(10))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .method(method, body);
+        if (token != null) request.header("Authorization", "Bearer " + token);
+        try {
+            return http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket s = new ServerSocket(0)) {
+            return s.getLocalPort();
+        }
+    }
+
+    // Only ASCII is looked for; the emoji come out in whatever the child's console encoding is.
+    private static String read(File log) {
+        try {
+            return Files.readString(log.toPath(), StandardCharsets.ISO_8859_1);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package library;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// The binary snapshot reads back exactly what was written, and any damage to it
+// is caught by the checksum before a single record is decoded.
+class SnapshotTest {
+    private static final int MAGIC = 0x54455354; // "TEST"
+
+    @TempDir
+    File dir;
+
+    @Test
+    void writerAndReaderRoundTrip() throws IOException {
+        File file = new File(dir, "test.snap");
+        long[] numbers = {0, 1, 127, 128, 300, Integer.MAX_VALUE, Long.MAX_VALUE};
+        String[] strings = {"", "Dune", "ünïcødé – 書名", "tab\tand\nnewline"};
+        writeSample(file, numbers, strings, 42);
+        assertFalse(new File(dir, "test.snap.tmp").exists(), "temporary file renamed into place");
+
+        try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            assertEquals(42, SnapshotReader.seqOf(ch, MAGIC));
+        }
+        try (SnapshotReader in = new SnapshotReader(file, MAGIC)) {
+            assertEquals(3, in.getVersion());
+            assertEquals(42, in.getSeq());
+            assertEquals(0xAB, in.readByte());
+            for (long n : numbers) assertEquals(n, in.readVarLong());
+            for (String s : strings) assertEquals(s, in.readString());
+            assertThrows(IOException.class, in::readByte, "reading past the body");
+        }
+    }
+
+    @Test
+    void flippedByteIsRejected() throws IOException {
+        File file = new File(dir, "test.snap");
+        writeSample(file, new long[] {1, 2, 3}, new String[] {"some", "strings"}, 7);
+        long length = file.length();
+        // The magic, the header, the body and the checksum itself.
+        for (long position : new long[] {0, 4, length / 2, length - 5, length - 1}) {
+            flipByte(file, position);
+            IOException e = assertThrows(IOException.class, () -> new SnapshotReader(file, MAGIC).close(), "byte " + position);
+            assertTrue(e.getMessage().contains("checksum"), e.getMessage());
+            flipByte(file, position);
+            new SnapshotReader(file, MAGIC).close();
+        }
+    }
+
+    @Test
+    void wrongKindAndTruncatedFilesAreRejected() throws IOException {
+        File file = new File(dir, "test.snap");
+        writeSample(file, new long[] {1}, new String[] {"x"}, 1);
+        assertThrows(IOException.class, () -> new SnapshotReader(file, MAGIC + 1).close());
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 3);
+        }
+        assertThrows(IOException.class, () -> new SnapshotReader(file, MAGIC).close());
+    }
+
+    @Test
+    void libraryReloadsFromItsSnapshot() throws IOException {
+        Library library = new Library(dir);
+        assertTrue(library.add(new Book("Dune", "Frank Herbert", "111", 3)).isSuccess());
+        assertTrue(library.add(new Book("Emma, a Novel", "Jane Austen", "222")).isSuccess());
+        assertTrue(library.add(new Book("書名", "著者", "333", 2)).isSuccess());
+        assertTrue(library.checkOut("111", "alice").isSuccess());
+        assertTrue(library.checkOut("111", "bob").isSuccess());
+        assertTrue(library.checkOut("333", "alice").isSuccess());
+        assertTrue(library.checkIn("111", "alice").isSuccess());
+        Map<String, String> books = describeBooks(library);
+        List<String> loans = describeLoans(library);
+        List<String> report = library.reportLines();
+        library.compact();
+        library.close();
+        // Nothing may come from the journal: the snapshot alone must hold it all.
+        assertTrue(new File(dir, "library.journal").delete());
+
+        Library reloaded = new Library(dir);
+        assertEquals(books, describeBooks(reloaded));
+        assertEquals(loans, describeLoans(reloaded));
+        assertEquals(report, reloaded.reportLines());
+        reloaded.close();
+
+        File snapshot = new File(dir, "library.snap");
+        flipByte(snapshot, snapshot.length() / 2);
+        assertThrows(UncheckedIOException.class, () -> new Library(dir), "damaged snapshot refused, not half-loaded");
+    }
+
+    private static void writeSample(File file, long[] numbers, String[] strings, long seq) throws IOException {
+        SnapshotWriter out = new SnapshotWriter();
+        out.writeByte(0xAB);
+        for (long n : numbers) out.writeVarLong(n);
+        for (String s : strings) out.writeString(s);
+        out.commit(file, MAGIC, 3, seq);
+    }
+
+    private static void flipByte(File file, long position) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(position);
+            int b = raf.read();
+            raf.seek(position);
+            raf.write(b ^ 0x40);
+        }
+    }
+
+    private static Map<String, String> describeBooks(Library library) {
+        Map<String, String> books = new TreeMap<>();
+        for (Book b : library.getBooks()) {
+            books.put(b.getIsbn(), b.getTitle() + "|" + b.getAuthor() + "|" + b.getAvailable() + "/" + b.getCopies());
+        }
+        return books;
+    }
+
+    private static List<String> describeLoans(Library library) {
+        List<String> loans = new ArrayList<>();
+        for (Transaction t : library.loansDueWithin(30)) loans.add(t.toCSV() + "#" + t.getCopy());
+        loans.sort(null);
+        return loans;
+    }
+}